@@ -0,0 +1,40 @@
+/**
+ * imageutils_jni.cpp - JNI bindings of ImageUtils
+ *
+ * The buffers are validated by ImageUtils before they get here.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+
+#include <jni.h>
+
+#include "yuv2rgb.h"
+
+extern "C" JNIEXPORT jstring JNICALL
+Java_io_nyris_camera_ImageUtils_stringFromJNI(JNIEnv *env, jclass /* clazz */) {
+    return env->NewStringUTF("ImageUtils");
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_io_nyris_camera_ImageUtils_nativeConvertYUV420ToARGB8888(
+        JNIEnv *env, jclass /* clazz */, jbyteArray y, jbyteArray u, jbyteArray v,
+        jintArray output, jint width, jint height, jint y_row_stride, jint uv_row_stride,
+        jint uv_pixel_stride, jboolean half_size) {
+    // Critical sections avoid copying the planes, nothing in between may call back into the VM
+    auto *y_data = static_cast<uint8_t *>(env->GetPrimitiveArrayCritical(y, nullptr));
+    auto *u_data = static_cast<uint8_t *>(env->GetPrimitiveArrayCritical(u, nullptr));
+    auto *v_data = static_cast<uint8_t *>(env->GetPrimitiveArrayCritical(v, nullptr));
+    auto *out = static_cast<uint32_t *>(env->GetPrimitiveArrayCritical(output, nullptr));
+
+    if (y_data != nullptr && u_data != nullptr && v_data != nullptr && out != nullptr) {
+        ConvertYUV420ToARGB8888(y_data, u_data, v_data, out, width, height, y_row_stride,
+                                uv_row_stride, uv_pixel_stride, half_size != JNI_FALSE);
+    }
+
+    if (out != nullptr) env->ReleasePrimitiveArrayCritical(output, out, 0);
+    if (v_data != nullptr) env->ReleasePrimitiveArrayCritical(v, v_data, JNI_ABORT);
+    if (u_data != nullptr) env->ReleasePrimitiveArrayCritical(u, u_data, JNI_ABORT);
+    if (y_data != nullptr) env->ReleasePrimitiveArrayCritical(y, y_data, JNI_ABORT);
+}
@@ -0,0 +1,34 @@
+/**
+ * yuv2rgb.h - YUV 4:2:0 to ARGB 8888 conversion
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+
+#ifndef NYRIS_CAMERA_YUV2RGB_H
+#define NYRIS_CAMERA_YUV2RGB_H
+
+#include <stdint.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+/**
+ * Converts YUV 4:2:0 planes with any row and pixel stride to ARGB 8888, the layout of
+ * Bitmap.Config.ARGB_8888 pixels read through getPixels().
+ *
+ * @param output    width * height pixels, or (width / 2) * (height / 2) pixels at half size
+ * @param half_size Averages each 2x2 luma block into one output pixel
+ */
+void ConvertYUV420ToARGB8888(const uint8_t *y_data, const uint8_t *u_data,
+                             const uint8_t *v_data, uint32_t *output,
+                             int width, int height, int y_row_stride,
+                             int uv_row_stride, int uv_pixel_stride, bool half_size);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // NYRIS_CAMERA_YUV2RGB_H
@@ -3,11 +3,7 @@
 package io.nyris.camera
 
 import android.hardware.Camera
-import android.text.TextUtils
-import net.sourceforge.zbar.Config
-import net.sourceforge.zbar.Image
-import net.sourceforge.zbar.ImageScanner
-import java.nio.charset.StandardCharsets
+import java.util.concurrent.Executor
 
 /**
  * Camera1ZBar.kt - class that use Camera API 1 to detect barcode using ZBAR
@@ -21,90 +17,233 @@ import java.nio.charset.StandardCharsets
 @Suppress("DEPRECATION")
 internal class Camera1ZBar(callback: CameraViewImpl.Callback?, preview: PreviewImpl) : IBarcodeCamera, Camera1(callback, preview), Camera.PreviewCallback {
     companion object {
-        init {
-            try {
-                System.loadLibrary("iconv")
-            } catch (e: UnsatisfiedLinkError) {
-                e.printStackTrace()
-            }
-        }
+        // One buffer the camera fills, one being decoded and one waiting in the decode executor
+        private const val DECODE_BUFFER_COUNT = 3
     }
 
-    private var scanner: ImageScanner = ImageScanner()
-    private val barcodeListeners: MutableList<IBarcodeListener> = mutableListOf()
+    private val counters = BarcodeCounters()
     private var isEnableBarcode: Boolean = true
+    // Not exclusive: the decode executor already keeps a single frame waiting
+    private val admission = FrameAdmission(false)
+    private val dutyCycle = AnalysisDutyCycle(admission, System.nanoTime())
+    private val decoder = ZBarDecoder(counters, dutyCycle)
+    private val decodeExecutor = LatestFrameExecutor<AnalysisFrame>("barcodeDecodeThread", counters,
+            ::decode, { it.release() })
+    private val frameRecycler = AnalysisFrame.Recycler { recycleBuffer(it.source as ByteArray) }
+    @Volatile
+    private var previewRing: PreviewRing? = null
+    @Volatile
+    private var frameAnalyzers: FrameAnalyzerDispatcher? = null
+    private var isFrameStreamOn = false
 
-    init {
-        scanner.setConfig(0, Config.X_DENSITY, 3)
-        scanner.setConfig(0, Config.Y_DENSITY, 3)
+    override fun addBarcodeListener(barcodeListener: IBarcodeListener) {
+        decoder.dispatcher.addBarcodeListener(barcodeListener)
     }
 
-    override fun addBarcodeListener(barcodeListener: IBarcodeListener) {
-        barcodeListeners.add(barcodeListener)
+    override fun removeBarcodeListener(barcodeListener: IBarcodeListener) {
+        decoder.dispatcher.removeBarcodeListener(barcodeListener)
+    }
+
+    override fun addBarcodesListener(barcodesListener: IBarcodesListener) {
+        decoder.dispatcher.addBarcodesListener(barcodesListener)
+    }
+
+    override fun removeBarcodesListener(barcodesListener: IBarcodesListener) {
+        decoder.dispatcher.removeBarcodesListener(barcodesListener)
+    }
+
+    override fun setBarcodeDeliveryExecutor(executor: Executor) {
+        decoder.dispatcher.deliveryExecutor = executor
+    }
+
+    override fun setScannerPoolSize(size: Int) {
+        decoder.scannerPoolSize = size
+    }
+
+    override fun setBarcodeTracking(isEnabled: Boolean) {
+        decoder.isTrackingEnabled = isEnabled
+    }
+
+    /**
+     * Camera API 1 has a single preview stream: frames are halved on the decoding thread until
+     * they fit.
+     */
+    override fun setAnalysisResolution(maxLongerSide: Int) {
+        decoder.analysisMaxSide = maxLongerSide
+    }
+
+    override fun setScanWindow(scanWindow: ScanWindow?) {
+        decoder.scanWindow = scanWindow
+    }
+
+    override fun setFrameQualityGate(qualityGate: FrameQualityGate?) {
+        decoder.qualityGate = qualityGate
+    }
+
+    override fun setBarcodeFormats(formats: Set<BarcodeFormat>) {
+        decoder.setBarcodeFormats(formats)
+    }
+
+    override fun setScanDensityPolicy(policy: ScanDensityPolicy) {
+        decoder.scanDensityPolicy = policy
+    }
+
+    override fun setBarcodeDeduplication(windowMillis: Long, maxCodes: Int) {
+        decoder.deduplicator = if (windowMillis > 0) BarcodeDeduplicator(windowMillis, maxCodes) else null
+    }
+
+    override fun setMaxAnalysisFps(maxFps: Float) {
+        dutyCycle.setActiveFps(maxFps)
+    }
+
+    override fun setIdleDutyCycle(idleFps: Float, idleAfterMillis: Long, wakeMotion: Float) {
+        dutyCycle.setIdleMode(idleFps, idleAfterMillis * 1000000, wakeMotion, System.nanoTime())
     }
 
     override fun enableBarcode(isEnabled: Boolean) {
         isEnableBarcode = isEnabled
+        updateFrameStream()
+    }
+
+    override fun setFrameAnalyzerDispatcher(dispatcher: FrameAnalyzerDispatcher?) {
+        frameAnalyzers = dispatcher
+        updateFrameStream()
     }
 
     override fun onPreviewFrame(data: ByteArray, camera: Camera) {
-        Thread(Runnable {
-
-            if (!isEnableBarcode)
-                return@Runnable
-
-            val parameters = camera.parameters
-            val size = parameters.previewSize
-            val width = size.width
-            val height = size.height
-            val barcode = Image(width, height, "Y800")
-            barcode.data = data
-
-            val result = scanner.scanImage(barcode)
-            if (result <= 0)
-                return@Runnable
-
-            val syms = scanner.results
-            val barcodeInstance = Barcode()
-            for (sym in syms) {
-                var symData: String
-                symData = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT) {
-                    String(sym.dataBytes, StandardCharsets.UTF_8)
-                } else {
-                    sym.data
-                }
-                if (!TextUtils.isEmpty(symData)) {
-                    symData = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT) {
-                        String(sym.dataBytes, StandardCharsets.UTF_8)
-                    } else {
-                        sym.data
-                    }
-                    if (!TextUtils.isEmpty(symData)) {
-                        barcodeInstance.contents = symData
-                        barcodeInstance.format = BarcodeFormat.getFormatById(sym.type)
-                    }
-                }
+        // Buffers of a previous ring do not match the current geometry
+        val ring = previewRing ?: return
+        val frame = ring.frameOf(data) ?: return
+        val geometry = ring.geometry
+        val analyzers = frameAnalyzers
+        val hasAnalyzers = analyzers != null && analyzers.hasAnalyzers()
+        var isAdmitted = false
+        if (isEnableBarcode) {
+            isAdmitted = admission.tryAdmit(System.nanoTime())
+            if (!isAdmitted) {
+                counters.framesReceived.incrementAndGet()
+                counters.framesDropped.incrementAndGet()
             }
+        }
+        if (!isAdmitted && !hasAnalyzers) {
+            recycleBuffer(data)
+            return
+        }
 
-            for (barcodeListener in barcodeListeners) {
-                barcodeListener.onBarcode(barcodeInstance)
-            }
+        frame.begin(geometry.width, geometry.height, System.nanoTime(), frameRotation, data,
+                frameRecycler)
+        if (hasAnalyzers) {
+            analyzers!!.dispatch(frame)
+        }
+        if (isAdmitted) {
+            decodeExecutor.offer(frame)
+        } else {
+            frame.release()
+        }
+    }
+
+    override fun start(): Boolean {
+        dutyCycle.reset(System.nanoTime())
+        decodeExecutor.start()
+        return super.start()
+    }
+
+    override fun stop() {
+        decodeExecutor.stop()
+        decoder.release()
+        super.stop()
+    }
 
-            if (!isCameraOpened)
-                return@Runnable
+    override fun getBarcodeStats(): BarcodeStats? {
+        return counters.snapshot(dutyCycle)
+    }
 
-            camera.setOneShotPreviewCallback(this)
-        }).start()
+    private fun decode(frame: AnalysisFrame) {
+        decoder.decode(frame, isFrameMirrored)
     }
 
     override fun adjustCameraParameters() {
         super.adjustCameraParameters()
-        if (isEnableBarcode) {
-            mCamera.setOneShotPreviewCallback(this)
-        }
+        // The camera may have been reopened, the stream is set up again from scratch
+        isFrameStreamOn = false
+        updateFrameStream()
 
         if (mShowingPreview) {
             mCamera.startPreview()
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the preview callback while barcodes are decoded or frames are analysed.
+     */
+    private fun updateFrameStream() {
+        if (!isCameraOpened)
+            return
+        val analyzerCount = frameAnalyzers?.analyzerCount ?: 0
+        val isNeeded = isEnableBarcode || analyzerCount > 0
+        // Every frame analyzer holds at most one buffer
+        val bufferCount = DECODE_BUFFER_COUNT + analyzerCount
+        if (isNeeded == isFrameStreamOn && (!isNeeded || previewRing?.buffers?.size == bufferCount))
+            return
+        if (isNeeded) {
+            startPreviewCallback(bufferCount)
+        } else {
+            mCamera.setPreviewCallbackWithBuffer(null)
+        }
+        isFrameStreamOn = isNeeded
+    }
+
+    /**
+     * Hands a fresh ring of preview buffers sized for the current preview size to the camera.
+     * Buffers of a previous ring that are still being decoded are left to the garbage collector.
+     */
+    private fun startPreviewCallback(bufferCount: Int) {
+        val ring = PreviewRing(mFrameGeometry, bufferCount)
+        previewRing = ring
+        // Clears the buffer queue of the previous ring
+        mCamera.setPreviewCallbackWithBuffer(null)
+        for (buffer in ring.buffers) {
+            mCamera.addCallbackBuffer(buffer)
+        }
+        mCamera.setPreviewCallbackWithBuffer(this)
+    }
+
+    /**
+     * Gives a preview buffer back to the camera once the scanner and the analyzers are done with
+     * it.
+     */
+    private fun recycleBuffer(data: ByteArray) {
+        if (!isCurrentBuffer(data))
+            return
+        val camera = mCamera ?: return
+        try {
+            camera.addCallbackBuffer(data)
+        } catch (e: RuntimeException) {
+            // Camera was released while the frame was decoded
+        }
+    }
+
+    private fun isCurrentBuffer(data: ByteArray): Boolean {
+        return previewRing?.frameOf(data) != null
+    }
+
+    /**
+     * Preview buffers with one frame each, the frame planes point into their buffer for good.
+     */
+    private inner class PreviewRing(val geometry: FrameGeometry, bufferCount: Int) {
+        val buffers = Array(bufferCount) { ByteArray(geometry.bufferSize) }
+        private val frames = Array(bufferCount) {
+            val frame = AnalysisFrame()
+            setPreviewPlanes(frame, buffers[it])
+            frame
+        }
+
+        fun frameOf(buffer: ByteArray): AnalysisFrame? {
+            for (i in buffers.indices) {
+                if (buffers[i] === buffer)
+                    return frames[i]
+            }
+            return null
+        }
+    }
+}
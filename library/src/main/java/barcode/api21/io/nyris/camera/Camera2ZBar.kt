@@ -4,15 +4,13 @@ import android.annotation.TargetApi
 import android.content.Context
 import android.graphics.ImageFormat
 import android.hardware.camera2.*
+import android.media.Image
 import android.media.ImageReader
 import android.os.Handler
 import android.os.HandlerThread
-import android.text.TextUtils
-import net.sourceforge.zbar.Config
-import net.sourceforge.zbar.ImageScanner
 import timber.log.Timber
-import java.nio.charset.StandardCharsets
 import java.util.*
+import java.util.concurrent.Executor
 
 
 /**
@@ -26,102 +24,166 @@ import java.util.*
 @TargetApi(21)
 internal open class Camera2ZBar(callback: Callback?, preview: PreviewImpl, context: Context) : IBarcodeCamera, Camera2(callback, preview, context) {
     companion object {
-        init {
-            try {
-                System.loadLibrary("iconv")
-            } catch (e: UnsatisfiedLinkError) {
-                e.printStackTrace()
-            }
-        }
+        // acquireLatestImage needs two free images, the decoder is done with its image by then
+        private const val DECODE_IMAGE_COUNT = 2
+        // Idle frames kept for the images of the decoder and a few analyzers
+        private const val POOLED_FRAMES = 4
     }
 
-    private var scanner: ImageScanner = ImageScanner()
-    private val barcodeListeners: MutableList<IBarcodeListener> = mutableListOf()
-    private var isBarcodeEnabled: Boolean = true
+    private val counters = BarcodeCounters()
+    private val admission = FrameAdmission(true)
+    private val dutyCycle = AnalysisDutyCycle(admission, System.nanoTime())
+    private val decoder = ZBarDecoder(counters, dutyCycle)
+    @Volatile
+    private var analysisMaxSide = 0
+    private val framePool = AnalysisFramePool(POOLED_FRAMES)
+    private val frameRecycler = AnalysisFrame.Recycler {
+        (it.source as Image).close()
+        framePool.recycle(it)
+    }
 
     private var listenerThread: HandlerThread? = null
     private var listenerHandler: Handler? = null
 
-    private var isComputing = false
+    @Volatile
+    private var frameAnalyzers: FrameAnalyzerDispatcher? = null
     private val tag = Camera2ZBar::class.java.name
 
-    init {
-        scanner.setConfig(0, Config.X_DENSITY, 3)
-        scanner.setConfig(0, Config.Y_DENSITY, 3)
+    override fun addBarcodeListener(barcodeListener: IBarcodeListener) {
+        decoder.dispatcher.addBarcodeListener(barcodeListener)
     }
 
-    override fun addBarcodeListener(barcodeListener: IBarcodeListener) {
-        barcodeListeners.add(barcodeListener)
+    override fun removeBarcodeListener(barcodeListener: IBarcodeListener) {
+        decoder.dispatcher.removeBarcodeListener(barcodeListener)
+    }
+
+    override fun addBarcodesListener(barcodesListener: IBarcodesListener) {
+        decoder.dispatcher.addBarcodesListener(barcodesListener)
+    }
+
+    override fun removeBarcodesListener(barcodesListener: IBarcodesListener) {
+        decoder.dispatcher.removeBarcodesListener(barcodesListener)
+    }
+
+    override fun setBarcodeDeliveryExecutor(executor: Executor) {
+        decoder.dispatcher.deliveryExecutor = executor
+    }
+
+    override fun setScannerPoolSize(size: Int) {
+        decoder.scannerPoolSize = size
+    }
+
+    override fun setBarcodeTracking(isEnabled: Boolean) {
+        decoder.isTrackingEnabled = isEnabled
+    }
+
+    /**
+     * The barcode stream gets its own smaller size, takes effect when the capture session starts.
+     */
+    override fun setAnalysisResolution(maxLongerSide: Int) {
+        analysisMaxSide = maxLongerSide
+        decoder.analysisMaxSide = maxLongerSide
+    }
+
+    override fun setScanWindow(scanWindow: ScanWindow?) {
+        decoder.scanWindow = scanWindow
+    }
+
+    override fun setFrameQualityGate(qualityGate: FrameQualityGate?) {
+        decoder.qualityGate = qualityGate
+    }
+
+    override fun setBarcodeFormats(formats: Set<BarcodeFormat>) {
+        decoder.setBarcodeFormats(formats)
+    }
+
+    override fun setScanDensityPolicy(policy: ScanDensityPolicy) {
+        decoder.scanDensityPolicy = policy
+    }
+
+    override fun setBarcodeDeduplication(windowMillis: Long, maxCodes: Int) {
+        decoder.deduplicator = if (windowMillis > 0) BarcodeDeduplicator(windowMillis, maxCodes) else null
+    }
+
+    override fun getBarcodeStats(): BarcodeStats? {
+        return counters.snapshot(dutyCycle)
+    }
+
+    override fun setMaxAnalysisFps(maxFps: Float) {
+        dutyCycle.setActiveFps(maxFps)
+    }
+
+    override fun setIdleDutyCycle(idleFps: Float, idleAfterMillis: Long, wakeMotion: Float) {
+        dutyCycle.setIdleMode(idleFps, idleAfterMillis * 1000000, wakeMotion, System.nanoTime())
     }
 
     override fun enableBarcode(isEnabled: Boolean) {
-        isBarcodeEnabled = isEnabled
+        admission.isEnabled = isEnabled
+    }
+
+    /**
+     * The image reader is sized for the analyzers, the capture session is started again when
+     * their count changes.
+     */
+    override fun setFrameAnalyzerDispatcher(dispatcher: FrameAnalyzerDispatcher?) {
+        frameAnalyzers = dispatcher
+        val reader = mImageReader
+        if (mCaptureSession != null && reader != null && reader.maxImages != readerImageCount()) {
+            mCaptureSession.close()
+            mCaptureSession = null
+            startCaptureSession()
+        }
+    }
+
+    /**
+     * Every frame analyzer holds at most one image.
+     */
+    private fun readerImageCount(): Int {
+        return DECODE_IMAGE_COUNT + (frameAnalyzers?.analyzerCount ?: 0)
     }
 
     private val mBarcodeImageListener = ImageReader.OnImageAvailableListener { reader ->
         listenerHandler?.post({
-            val image = reader.acquireLatestImage() ?: return@post
+            val image = try {
+                reader.acquireLatestImage()
+            } catch (e: IllegalStateException) {
+                // Every image is held by the decoder or the analyzers
+                null
+            } ?: return@post
 
-            if (!isBarcodeEnabled) {
-                isComputing = false
-                image.close()
-                return@post
+            val analyzers = frameAnalyzers
+            val hasAnalyzers = analyzers != null && analyzers.hasAnalyzers()
+            var isAdmitted = false
+            if (admission.isEnabled) {
+                counters.framesReceived.incrementAndGet()
+                isAdmitted = admission.tryAdmit(System.nanoTime())
+                if (!isAdmitted) {
+                    counters.framesDropped.incrementAndGet()
+                }
             }
-
-            if (isComputing) {
+            if (!isAdmitted && !hasAnalyzers) {
                 image.close()
                 return@post
             }
 
-            val planes = image.planes
-            if (!planes.isNotEmpty()) {
-                image.close()
+            val frame = framePool.acquire()
+            setImagePlanes(frame, image)
+            frame.begin(image.width, image.height, image.timestamp, frameRotation, image,
+                    frameRecycler)
+            if (hasAnalyzers) {
+                analyzers!!.dispatch(frame)
+            }
+            if (!isAdmitted) {
+                frame.release()
                 return@post
             }
-
             try {
-                isComputing = true
-                val buffer = image.planes[0].buffer
-                val bytes = ByteArray(buffer.capacity())
-                buffer.get(bytes)
-                val barcode = net.sourceforge.zbar.Image(reader.width, reader.height, "Y800")
-                barcode.data = bytes
-                val result = scanner.scanImage(barcode)
-                if (result <= 0) {
-                    image.close()
-                    return@post
-                }
-
-                val syms = scanner.results
-                val barcodeInstance = Barcode()
-                for (sym in syms) {
-                    var symData: String
-                    symData = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT) {
-                        String(sym.dataBytes, StandardCharsets.UTF_8)
-                    } else {
-                        sym.data
-                    }
-                    if (!TextUtils.isEmpty(symData)) {
-                        symData = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT) {
-                            String(sym.dataBytes, StandardCharsets.UTF_8)
-                        } else {
-                            sym.data
-                        }
-                        if (!TextUtils.isEmpty(symData)) {
-                            barcodeInstance.contents = symData
-                            barcodeInstance.format = BarcodeFormat.getFormatById(sym.type)
-                        }
-                    }
-                }
-
-                for (barcodeListener in barcodeListeners) {
-                    barcodeListener.onBarcode(barcodeInstance)
-                }
+                decoder.decode(frame, isFrameMirrored)
             } catch (e: Exception) {
                 e.printStackTrace()
             } finally {
-                isComputing = false
-                image.close()
+                admission.finish()
+                frame.release()
             }
         })
     }
@@ -168,6 +230,7 @@ internal open class Camera2ZBar(callback: Callback?, preview: PreviewImpl, conte
     }
 
     override fun start(): Boolean {
+        dutyCycle.reset(System.nanoTime())
         listenerThread = HandlerThread("listenerThread")
         listenerThread?.start()
         listenerHandler = Handler(listenerThread?.looper)
@@ -190,6 +253,7 @@ internal open class Camera2ZBar(callback: Callback?, preview: PreviewImpl, conte
             listenerThread?.join()
             listenerThread = null
             listenerHandler = null
+            decoder.release()
         } catch (e: InterruptedException) {
             e.printStackTrace()
         }
@@ -208,8 +272,9 @@ internal open class Camera2ZBar(callback: Callback?, preview: PreviewImpl, conte
         try {
             mPreviewRequestBuilder = mCamera.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW)
             mPreviewRequestBuilder.addTarget(surface)
-            mImageReader = ImageReader.newInstance(frameSize.width, frameSize.height,
-                    ImageFormat.YUV_420_888, /* maxImages */ 3)
+            val analysisSize = chooseAnalysisSize(ImageFormat.YUV_420_888, analysisMaxSide)
+            mImageReader = ImageReader.newInstance(analysisSize.width, analysisSize.height,
+                    ImageFormat.YUV_420_888, readerImageCount())
             mImageReader.setOnImageAvailableListener(mBarcodeImageListener, listenerHandler)
             mPreviewRequestBuilder.addTarget(mImageReader.surface)
             mCamera.createCaptureSession(Arrays.asList(surface, mImageReader.surface),
@@ -0,0 +1,44 @@
+package io.nyris.camera
+
+/**
+ * AdaptiveScanDensityPolicy.kt - Starts with a coarse, fast scan density and tightens it one step
+ * every [missesPerStep] frames without a result, down to a density of 1. A successful read goes
+ * back to the coarse density.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+class AdaptiveScanDensityPolicy @JvmOverloads constructor(
+        private val coarseDensity: Int = DEFAULT_COARSE_DENSITY,
+        private val missesPerStep: Int = DEFAULT_MISSES_PER_STEP) : ScanDensityPolicy {
+    companion object {
+        const val DEFAULT_COARSE_DENSITY = 3
+        const val DEFAULT_MISSES_PER_STEP = 5
+    }
+
+    private var density = coarseDensity
+    private var misses = 0
+
+    init {
+        require(coarseDensity >= 1) { "Density must be at least 1" }
+        require(missesPerStep >= 1) { "Misses per step must be at least 1" }
+    }
+
+    override fun nextDensity(): Int = density
+
+    override fun onFrameScanned(isFound: Boolean) {
+        if (isFound) {
+            density = coarseDensity
+            misses = 0
+            return
+        }
+        if (density == 1)
+            return
+        misses++
+        if (misses >= missesPerStep) {
+            density--
+            misses = 0
+        }
+    }
+}
@@ -13,4 +13,12 @@ import java.io.Serializable
 class Barcode : Serializable {
     var contents: String? = null
     var format: BarcodeFormat? = null
-}
\ No newline at end of file
+    /**
+     * Bounding box of the symbol in frame pixels as `{x, y, width, height}`.
+     */
+    var bounds: IntArray? = null
+    /**
+     * Number of times the symbol was seen in the frame, higher is more reliable.
+     */
+    var quality: Int = 0
+}
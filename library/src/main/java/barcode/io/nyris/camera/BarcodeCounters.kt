@@ -0,0 +1,46 @@
+package io.nyris.camera
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * BarcodeCounters.kt - Live counters of the barcode pipeline, shared by its stages
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+internal class BarcodeCounters {
+    val framesReceived = AtomicLong()
+    val framesDropped = AtomicLong()
+    val framesDecoded = AtomicLong()
+    val duplicatesSuppressed = AtomicLong()
+    val framesSkipped = AtomicLong()
+    val trackingHits = AtomicLong()
+    private var bandScanMicros = LongArray(0)
+
+    /**
+     * Folds the last scan time of the first `count` scanners into the per band averages. The
+     * averages start over when the number of bands changes.
+     */
+    @Synchronized
+    fun recordBandTimes(scanners: List<ZBarBandScanner>, count: Int) {
+        if (bandScanMicros.size != count) {
+            bandScanMicros = LongArray(count) { scanners[it].lastScanNanos / 1000 }
+            return
+        }
+        for (i in 0 until count) {
+            // Exponential moving average over roughly the last 8 frames
+            bandScanMicros[i] += (scanners[i].lastScanNanos / 1000 - bandScanMicros[i]) / 8
+        }
+    }
+
+    @Synchronized
+    fun snapshot(dutyCycle: AnalysisDutyCycle): BarcodeStats {
+        val now = System.nanoTime()
+        return BarcodeStats(framesReceived.get(), framesDropped.get(), framesDecoded.get(),
+                duplicatesSuppressed.get(), framesSkipped.get(), trackingHits.get(),
+                bandScanMicros.copyOf(), dutyCycle.effectiveFps,
+                dutyCycle.getStateNanos(AnalysisDutyCycle.STATE_ACTIVE, now) / 1000000,
+                dutyCycle.getStateNanos(AnalysisDutyCycle.STATE_IDLE, now) / 1000000)
+    }
+}
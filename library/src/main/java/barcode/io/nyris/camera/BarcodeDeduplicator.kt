@@ -0,0 +1,41 @@
+package io.nyris.camera
+
+import java.util.*
+
+/**
+ * BarcodeDeduplicator.kt - Lets each distinct barcode through once per time window
+ *
+ * Barcodes are keyed on format and contents. The memory is bounded: when more than [maxCodes]
+ * distinct codes are remembered, the least recently seen one is forgotten.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+internal class BarcodeDeduplicator(private val windowMillis: Long, private val maxCodes: Int) {
+    private val lastEmitted = object : LinkedHashMap<String, Long>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Long>?): Boolean {
+            return size > maxCodes
+        }
+    }
+
+    init {
+        require(windowMillis > 0) { "Window must be positive" }
+        require(maxCodes >= 1) { "At least one code must be remembered" }
+    }
+
+    /**
+     * @param nowMillis a monotonic timestamp in milliseconds
+     * @return true if the barcode should be emitted, false if it is a duplicate
+     */
+    fun accept(barcode: Barcode, nowMillis: Long): Boolean {
+        val key = "${barcode.format?.id}:${barcode.contents}"
+        val emittedAt = lastEmitted[key]
+        if (emittedAt != null && nowMillis - emittedAt < windowMillis)
+            return false
+        lastEmitted[key] = nowMillis
+        return true
+    }
+
+    fun size(): Int = lastEmitted.size
+}
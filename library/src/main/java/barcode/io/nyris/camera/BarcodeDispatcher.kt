@@ -0,0 +1,69 @@
+package io.nyris.camera
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+
+/**
+ * BarcodeDispatcher.kt - Registry of the barcode listeners and delivery of the decoded barcodes
+ *
+ * Listeners can be added and removed from any thread while the decoding thread delivers. The
+ * listeners are invoked on the delivery executor, so a slow listener does not hold up the next
+ * decode unless the caller thread executor is used.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+internal class BarcodeDispatcher {
+    private val barcodeListeners = CopyOnWriteArrayList<IBarcodeListener>()
+    private val barcodesListeners = CopyOnWriteArrayList<IBarcodesListener>()
+
+    /**
+     * Executor the listeners are invoked on.
+     */
+    @Volatile
+    var deliveryExecutor: Executor = BarcodeExecutors.CALLER_THREAD
+
+    fun addBarcodeListener(barcodeListener: IBarcodeListener) {
+        barcodeListeners.addIfAbsent(barcodeListener)
+    }
+
+    fun removeBarcodeListener(barcodeListener: IBarcodeListener) {
+        barcodeListeners.remove(barcodeListener)
+    }
+
+    fun addBarcodesListener(barcodesListener: IBarcodesListener) {
+        barcodesListeners.addIfAbsent(barcodesListener)
+    }
+
+    fun removeBarcodesListener(barcodesListener: IBarcodesListener) {
+        barcodesListeners.remove(barcodesListener)
+    }
+
+    /**
+     * @return `true` if at least one listener is registered.
+     */
+    fun hasListeners(): Boolean {
+        return !barcodeListeners.isEmpty() || !barcodesListeners.isEmpty()
+    }
+
+    /**
+     * Delivers the barcodes of one frame. Nothing is posted when no listener is registered.
+     *
+     * @param barcodes the barcodes of one frame, never empty
+     */
+    fun dispatch(barcodes: List<Barcode>) {
+        if (!hasListeners())
+            return
+        deliveryExecutor.execute {
+            // Single barcode listeners keep getting the last symbol of the frame
+            val lastBarcode = barcodes[barcodes.size - 1]
+            for (barcodeListener in barcodeListeners) {
+                barcodeListener.onBarcode(lastBarcode)
+            }
+            for (barcodesListener in barcodesListeners) {
+                barcodesListener.onBarcodes(barcodes)
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.nyris.camera
+
+import android.os.Handler
+import android.os.Looper
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * BarcodeExecutors.kt - Executors that barcode listeners can be delivered on
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+object BarcodeExecutors {
+    /**
+     * Delivers on the decoding thread. No thread hop, but the next frame waits for the listeners.
+     */
+    @JvmField
+    val CALLER_THREAD: Executor = Executor { it.run() }
+
+    /**
+     * Delivers on the main thread, listeners can touch the views directly.
+     */
+    @JvmField
+    val MAIN_THREAD: Executor = object : Executor {
+        private val mainHandler by lazy { Handler(Looper.getMainLooper()) }
+
+        override fun execute(command: Runnable) {
+            mainHandler.post(command)
+        }
+    }
+
+    /**
+     * Creates a dedicated dispatcher thread. The caller owns it and should shut it down once the
+     * listeners are no longer needed.
+     *
+     * @param name the name of the dispatcher thread
+     */
+    @JvmStatic
+    fun newDispatcher(name: String): ExecutorService {
+        return Executors.newSingleThreadExecutor { runnable ->
+            val thread = Thread(runnable, name)
+            thread.isDaemon = true
+            thread
+        }
+    }
+}
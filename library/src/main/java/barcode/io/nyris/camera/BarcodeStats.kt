@@ -0,0 +1,65 @@
+package io.nyris.camera
+
+import java.io.Serializable
+import java.util.Arrays
+
+/**
+ * BarcodeStats.kt - Snapshot of the barcode decoding counters
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+class BarcodeStats(
+        /**
+         * Number of preview frames handed to the decoder.
+         */
+        val framesReceived: Long,
+        /**
+         * Number of frames replaced by a newer frame before they were decoded.
+         */
+        val framesDropped: Long,
+        /**
+         * Number of frames that went through the scanner. Frames skipped by the quality gate or
+         * with an empty scan window are not scanned.
+         */
+        val framesDecoded: Long,
+        /**
+         * Number of barcodes not emitted because they were already seen in the deduplication window.
+         */
+        val duplicatesSuppressed: Long,
+        /**
+         * Number of frames not scanned because they were too blurred or moving too much.
+         */
+        val framesSkipped: Long,
+        /**
+         * Number of frames decoded from the window around the last found symbols, without a full
+         * scan.
+         */
+        val trackingHits: Long,
+        /**
+         * Average scan time of each band of a frame, in microseconds, from top to bottom. Holds a
+         * single entry when frames are not split across scanners.
+         */
+        val bandScanMicros: LongArray,
+        /**
+         * Number of frames analysed per second, averaged over the last frames.
+         */
+        val effectiveFps: Float,
+        /**
+         * Time spent analysing at the active frame rate, in milliseconds.
+         */
+        val activeMillis: Long,
+        /**
+         * Time spent analysing at the idle frame rate, in milliseconds.
+         */
+        val idleMillis: Long) : Serializable {
+
+    override fun toString(): String {
+        return "BarcodeStats(received=$framesReceived, dropped=$framesDropped, " +
+                "decoded=$framesDecoded, duplicates=$duplicatesSuppressed, skipped=$framesSkipped, " +
+                "trackingHits=$trackingHits, " +
+                "bandScanMicros=${Arrays.toString(bandScanMicros)}, fps=$effectiveFps, " +
+                "activeMillis=$activeMillis, idleMillis=$idleMillis)"
+    }
+}
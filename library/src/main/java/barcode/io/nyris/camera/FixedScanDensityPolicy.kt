@@ -0,0 +1,19 @@
+package io.nyris.camera
+
+/**
+ * FixedScanDensityPolicy.kt - Scans every frame with the same density
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+class FixedScanDensityPolicy(private val density: Int) : ScanDensityPolicy {
+    init {
+        require(density >= 1) { "Density must be at least 1" }
+    }
+
+    override fun nextDensity(): Int = density
+
+    override fun onFrameScanned(isFound: Boolean) {
+    }
+}
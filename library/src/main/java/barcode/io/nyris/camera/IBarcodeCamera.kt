@@ -1,5 +1,7 @@
 package io.nyris.camera
 
+import java.util.concurrent.Executor
+
 /**
  * IBarcodeCamera.kt - interface class to implement Barcode Camera
  *
@@ -7,4 +9,73 @@ package io.nyris.camera
  * Created by nyris GmbH
  * Copyright © 2018 nyris GmbH. All rights reserved.
  */
-interface IBarcodeCamera
\ No newline at end of file
+interface IBarcodeCamera {
+    /**
+     * Restrict decoding to the given formats. Takes effect before the next frame is scanned.
+     *
+     * @param formats the formats to decode, all formats are decoded when empty
+     */
+    fun setBarcodeFormats(formats: Set<BarcodeFormat>)
+
+    /**
+     * Set the policy deciding the scan density of each frame.
+     *
+     * @param policy the policy, called on the decoding thread
+     */
+    fun setScanDensityPolicy(policy: ScanDensityPolicy)
+
+    /**
+     * Emit each distinct barcode at most once per time window.
+     *
+     * @param windowMillis the window in milliseconds, 0 to emit every barcode
+     * @param maxCodes the number of distinct barcodes remembered
+     */
+    fun setBarcodeDeduplication(windowMillis: Long, maxCodes: Int)
+
+    /**
+     * Set the executor the barcode listeners are invoked on.
+     *
+     * @param executor the executor, see [BarcodeExecutors]
+     */
+    fun setBarcodeDeliveryExecutor(executor: Executor)
+
+    /**
+     * Set the number of ZBar scanners each frame is split across.
+     *
+     * @param size the number of scanners, 1 to scan frames on the decoding thread only
+     */
+    fun setScannerPoolSize(size: Int)
+
+    /**
+     * Scan the area around the last found symbols first, and the whole frame only when they are
+     * not found there anymore.
+     *
+     * @param isEnabled true to enable the tracking mode
+     */
+    fun setBarcodeTracking(isEnabled: Boolean)
+
+    /**
+     * Decode barcodes from frames smaller than the preview.
+     *
+     * @param maxLongerSide the maximum longer side of the analysed frames in pixels, 0 to analyse
+     * frames at the preview size
+     */
+    fun setAnalysisResolution(maxLongerSide: Int)
+
+    /**
+     * Cap the number of frames analysed per second.
+     *
+     * @param maxFps the maximum analysis frame rate, 0 for no cap
+     */
+    fun setMaxAnalysisFps(maxFps: Float)
+
+    /**
+     * Lower the analysis frame rate while no barcode is found and the scene does not move.
+     *
+     * @param idleFps the analysis frame rate while idle
+     * @param idleAfterMillis the time without detection nor motion before going idle, 0 to never
+     * go idle
+     * @param wakeMotion the mean luma change between two analysed frames that ends the idle state
+     */
+    fun setIdleDutyCycle(idleFps: Float, idleAfterMillis: Long, wakeMotion: Float)
+}
@@ -0,0 +1,15 @@
+package io.nyris.camera
+
+/**
+ * IBarcodesListener.kt - Barcode listener triggered with every barcode decoded in a frame
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+interface IBarcodesListener {
+    /**
+     * @param barcodes the barcodes of one frame, never empty
+     */
+    fun onBarcodes(barcodes: List<Barcode>)
+}
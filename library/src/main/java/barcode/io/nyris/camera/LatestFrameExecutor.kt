@@ -0,0 +1,91 @@
+package io.nyris.camera
+
+import android.os.Handler
+import android.os.HandlerThread
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * LatestFrameExecutor.kt - Single worker that decodes preview frames one at a time.
+ *
+ * Frames are handed over through a one-slot mailbox: when a new frame arrives while the previous
+ * one is still waiting, the waiting frame is dropped and recycled, so the worker always picks up
+ * the most recent frame and never builds a backlog.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+internal class LatestFrameExecutor<T : Any>(private val name: String,
+                                            private val counters: BarcodeCounters,
+                                            private val decode: (T) -> Unit,
+                                            private val recycle: (T) -> Unit) {
+    private val pendingFrame = AtomicReference<T?>()
+
+    private var workerThread: HandlerThread? = null
+    @Volatile
+    private var workerHandler: Handler? = null
+
+    private val drainRunnable = Runnable {
+        val frame = pendingFrame.getAndSet(null) ?: return@Runnable
+        try {
+            decode(frame)
+        } catch (e: Exception) {
+            e.printStackTrace()
+        } finally {
+            recycle(frame)
+        }
+    }
+
+    @Synchronized
+    fun start() {
+        if (workerThread != null)
+            return
+        val thread = HandlerThread(name)
+        thread.start()
+        workerThread = thread
+        workerHandler = Handler(thread.looper)
+    }
+
+    /**
+     * Stops the worker. The frame being decoded is allowed to finish, a frame still waiting in the
+     * slot is dropped.
+     */
+    @Synchronized
+    fun stop() {
+        val thread = workerThread ?: return
+        workerHandler = null
+        workerThread = null
+        thread.quit()
+        try {
+            thread.join()
+        } catch (e: InterruptedException) {
+            e.printStackTrace()
+        }
+        pendingFrame.getAndSet(null)?.let {
+            counters.framesDropped.incrementAndGet()
+            recycle(it)
+        }
+    }
+
+    /**
+     * Hands a frame to the worker. Any frame the worker has not picked up yet is replaced.
+     */
+    fun offer(frame: T) {
+        counters.framesReceived.incrementAndGet()
+        val handler = workerHandler
+        if (handler == null) {
+            counters.framesDropped.incrementAndGet()
+            recycle(frame)
+            return
+        }
+        val staleFrame = pendingFrame.getAndSet(frame)
+        if (staleFrame != null) {
+            counters.framesDropped.incrementAndGet()
+            recycle(staleFrame)
+        } else if (!handler.post(drainRunnable) && pendingFrame.compareAndSet(frame, null)) {
+            // The worker was stopped in the meantime
+            counters.framesDropped.incrementAndGet()
+            recycle(frame)
+        }
+    }
+}
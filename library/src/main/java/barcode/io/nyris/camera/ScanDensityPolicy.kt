@@ -0,0 +1,26 @@
+package io.nyris.camera
+
+/**
+ * ScanDensityPolicy.kt - Decides the ZBar scan density used for each frame
+ *
+ * The density is the distance in pixels between two scanned lines: 1 scans every line and is the
+ * most reliable, higher values are faster but may miss small or damaged codes. Methods are called
+ * on the decoding thread.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+interface ScanDensityPolicy {
+    /**
+     * @return the density to scan the next frame with, at least 1
+     */
+    fun nextDensity(): Int
+
+    /**
+     * Called after each scanned frame.
+     *
+     * @param isFound true if at least one barcode was decoded
+     */
+    fun onFrameScanned(isFound: Boolean)
+}
@@ -0,0 +1,121 @@
+package io.nyris.camera
+
+import android.text.TextUtils
+import net.sourceforge.zbar.Config
+import net.sourceforge.zbar.Image
+import net.sourceforge.zbar.ImageScanner
+import net.sourceforge.zbar.Symbol
+import java.nio.charset.StandardCharsets
+
+/**
+ * ZBarBandScanner.kt - One ZBar scanner with its own configuration, scanning one band of a frame
+ *
+ * A band scanner is used by one thread at a time, the scanners of a frame run in parallel.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+internal class ZBarBandScanner {
+    private val scanner: ImageScanner = ImageScanner()
+    private var appliedDensity = 0
+    private var appliedFormats: Set<BarcodeFormat>? = null
+    private var bandData = ByteArray(0)
+
+    /**
+     * Duration of the last scan, in nanoseconds.
+     */
+    var lastScanNanos = 0L
+        private set
+
+    /**
+     * Scans a band of a luma frame.
+     *
+     * @param data Y800 data, at least `width * height` bytes
+     * @param band The band as `{x, y, width, height}` in frame pixels
+     * @return The decoded barcodes, with bounds in frame pixels.
+     */
+    fun scan(data: ByteArray, width: Int, height: Int, band: IntArray,
+             density: Int, formats: Set<BarcodeFormat>): MutableList<Barcode> {
+        val start = System.nanoTime()
+        try {
+            applyFormats(formats)
+            applyDensity(density)
+
+            val image: Image
+            val offsetY: Int
+            if (band[1] == 0 && band[3] == height) {
+                image = Image(width, height, "Y800")
+                image.data = data
+                image.setCrop(band)
+                offsetY = 0
+            } else {
+                // Rows are contiguous: the band is handed over without the rest of the frame
+                val size = width * band[3]
+                if (bandData.size != size) {
+                    bandData = ByteArray(size)
+                }
+                System.arraycopy(data, width * band[1], bandData, 0, size)
+                image = Image(width, band[3], "Y800")
+                image.data = bandData
+                image.setCrop(band[0], 0, band[2], band[3])
+                offsetY = band[1]
+            }
+
+            val result = scanner.scanImage(image)
+            if (result <= 0)
+                return ArrayList(0)
+            val barcodes = ArrayList<Barcode>(result)
+            for (sym in scanner.results) {
+                toBarcode(sym, offsetY)?.let { barcodes.add(it) }
+            }
+            return barcodes
+        } finally {
+            lastScanNanos = System.nanoTime() - start
+        }
+    }
+
+    private fun toBarcode(sym: Symbol, offsetY: Int): Barcode? {
+        val symData = if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.KITKAT) {
+            String(sym.dataBytes, StandardCharsets.UTF_8)
+        } else {
+            sym.data
+        }
+        if (TextUtils.isEmpty(symData))
+            return null
+        val barcode = Barcode()
+        barcode.contents = symData
+        barcode.format = BarcodeFormat.getFormatById(sym.type)
+        barcode.bounds = sym.bounds?.also { it[1] += offsetY }
+        barcode.quality = sym.quality
+        return barcode
+    }
+
+    private fun applyDensity(density: Int) {
+        val newDensity = Math.max(1, density)
+        if (newDensity == appliedDensity)
+            return
+        scanner.setConfig(0, Config.X_DENSITY, newDensity)
+        scanner.setConfig(0, Config.Y_DENSITY, newDensity)
+        appliedDensity = newDensity
+    }
+
+    private fun applyFormats(formats: Set<BarcodeFormat>) {
+        if (formats === appliedFormats)
+            return
+        appliedFormats = formats
+        if (formats.isEmpty()) {
+            // ZBar defaults: everything but the ISBN variants of EAN
+            scanner.setConfig(0, Config.ENABLE, 1)
+            scanner.setConfig(BarcodeFormat.ISBN10.id, Config.ENABLE, 0)
+            scanner.setConfig(BarcodeFormat.ISBN13.id, Config.ENABLE, 0)
+            return
+        }
+        scanner.setConfig(0, Config.ENABLE, 0)
+        for (format in formats) {
+            if (format.id > BarcodeFormat.PARTIAL.id) {
+                scanner.setConfig(format.id, Config.ENABLE, 1)
+            }
+        }
+    }
+}
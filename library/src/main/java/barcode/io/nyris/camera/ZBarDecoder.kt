@@ -0,0 +1,334 @@
+package io.nyris.camera
+
+import android.os.SystemClock
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * ZBarDecoder.kt - ZBar scanning shared by the Camera API 1 and Camera API 2 barcode cameras
+ *
+ * With a scanner pool larger than one, the scan region is split into overlapping horizontal bands
+ * that are scanned in parallel by their own ZBar scanner, the calling thread scanning the first
+ * band itself.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+internal class ZBarDecoder(private val counters: BarcodeCounters,
+                           private val dutyCycle: AnalysisDutyCycle) {
+    companion object {
+        /**
+         * Rows each band extends into its neighbours, as a fraction of the band height.
+         */
+        private const val BAND_OVERLAP_FRACTION = 0.25f
+
+        init {
+            try {
+                System.loadLibrary("iconv")
+            } catch (e: UnsatisfiedLinkError) {
+                e.printStackTrace()
+            }
+        }
+    }
+
+    /**
+     * Listeners of the decoded barcodes.
+     */
+    val dispatcher = BarcodeDispatcher()
+
+    /**
+     * Region of the preview to scan, `null` to scan the whole frame.
+     */
+    @Volatile
+    var scanWindow: ScanWindow? = null
+
+    /**
+     * Decides the scan density of each frame, the coarse density of 3 by default.
+     */
+    @Volatile
+    var scanDensityPolicy: ScanDensityPolicy = FixedScanDensityPolicy(3)
+
+    /**
+     * Suppresses barcodes already emitted recently, `null` to emit every barcode.
+     */
+    @Volatile
+    var deduplicator: BarcodeDeduplicator? = null
+
+    /**
+     * Skips blurred and moving frames before they are scanned, `null` to scan every frame.
+     */
+    @Volatile
+    var qualityGate: FrameQualityGate? = null
+
+    /**
+     * Number of ZBar scanners a frame is split across. Takes effect on the next frame.
+     */
+    @Volatile
+    var scannerPoolSize = 1
+        set(value) {
+            require(value >= 1) { "The scanner pool size must be at least 1" }
+            field = value
+        }
+
+    /**
+     * Longer side frames are halved to fit before scanning, 0 to scan frames at their size.
+     */
+    @Volatile
+    var analysisMaxSide = 0
+
+    /**
+     * Whether the area around the last found symbols is scanned first, before the whole region.
+     */
+    @Volatile
+    var isTrackingEnabled = false
+
+    @Volatile
+    private var formats: Set<BarcodeFormat> = emptySet()
+
+    // Only touched on the decoding thread, and by release() once that thread is stopped
+    private val lumaExtractor = LumaExtractor()
+    private val downscaler = LumaDownscaler()
+    private val scanners = ArrayList<ZBarBandScanner>()
+    private val symbolTracker = SymbolTracker()
+    // Measures motion for the duty cycle when no quality gate does
+    private val motionProbe = FrameQualityGate(0f, Float.MAX_VALUE)
+    private var bandPool: ThreadPoolExecutor? = null
+
+    private var cropWindow: ScanWindow? = null
+    private var cropKey = IntArray(4)
+    private var crop: IntArray? = null
+
+    /**
+     * Restrict the scanner to the given formats, all formats are enabled when empty. The scanners
+     * are reconfigured on the decoding thread right before the next frame.
+     */
+    fun setBarcodeFormats(formats: Set<BarcodeFormat>) {
+        this.formats = HashSet(formats)
+    }
+
+    /**
+     * Scans a frame and notifies the listeners when a barcode was found. The frame is halved until
+     * it fits the [analysisMaxSide].
+     *
+     * @param isMirrored Whether the preview is mirrored (front facing camera)
+     */
+    fun decode(frame: AnalysisFrame, isMirrored: Boolean) {
+        val packedLuma = lumaExtractor.lumaOf(frame)
+        val luma = downscaler.downscale(packedLuma, frame.width, frame.height, analysisMaxSide)
+        decode(luma, downscaler.width, downscaler.height, frame.rotation, isMirrored)
+    }
+
+    /**
+     * Scans a luma frame, downscaled by [downscaler], and notifies the listeners when a barcode
+     * was found.
+     *
+     * @param data Y800 data, at least `width * height` bytes
+     * @param rotation Clockwise rotation in degrees that displays the frame upright
+     * @param isMirrored Whether the preview is mirrored (front facing camera)
+     */
+    private fun decode(data: ByteArray, width: Int, height: Int, rotation: Int, isMirrored: Boolean) {
+        val region = cropFor(width, height, rotation, isMirrored) ?: intArrayOf(0, 0, width, height)
+        if (region[2] == 0 || region[3] == 0)
+            return
+        val gate = qualityGate
+        var motion = 0f
+        if (gate != null) {
+            val isAccepted = gate.accept(data, width, height, region)
+            motion = gate.motion
+            if (!isAccepted) {
+                counters.framesSkipped.incrementAndGet()
+                dutyCycle.onFrameAnalyzed(System.nanoTime(), false, motion)
+                return
+            }
+        } else if (dutyCycle.isIdleModeEnabled) {
+            motionProbe.accept(data, width, height, region)
+            motion = motionProbe.motion
+        }
+
+        val policy = scanDensityPolicy
+        val density = policy.nextDensity()
+        val formats = this.formats
+        ensureScanners(1)
+
+        var barcodes: MutableList<Barcode>? = null
+        val tracker = if (isTrackingEnabled) symbolTracker else null
+        val trackingWindow = tracker?.searchWindow(region, width, height)
+        if (trackingWindow != null) {
+            val found = scanners[0].scan(data, width, height, trackingWindow, density, formats)
+            if (found.isNotEmpty()) {
+                counters.trackingHits.incrementAndGet()
+                barcodes = found
+            }
+        }
+        if (barcodes == null) {
+            barcodes = scanRegion(data, width, height, region, density, formats)
+        }
+        counters.framesDecoded.incrementAndGet()
+        if (tracker != null) {
+            tracker.update(barcodes.mapNotNull { it.bounds }, width, height)
+        } else {
+            symbolTracker.reset()
+        }
+
+        policy.onFrameScanned(barcodes.isNotEmpty())
+        dutyCycle.onFrameAnalyzed(System.nanoTime(), barcodes.isNotEmpty(), motion)
+        removeDuplicates(barcodes)
+        if (barcodes.isEmpty())
+            return
+        // The tracker and the crop work in analysis pixels, listeners get source frame pixels
+        for (barcode in barcodes) {
+            barcode.bounds = barcode.bounds?.let { downscaler.toSourceBounds(it) }
+        }
+        dispatcher.dispatch(barcodes)
+    }
+
+    /**
+     * Shuts the band threads down. Must be called once no frame is being decoded anymore, the
+     * threads are started again by the next frame.
+     */
+    fun release() {
+        bandPool?.shutdown()
+        bandPool = null
+    }
+
+    private fun scanRegion(data: ByteArray, width: Int, height: Int, region: IntArray,
+                           density: Int, formats: Set<BarcodeFormat>): MutableList<Barcode> {
+        val poolSize = scannerPoolSize
+        val bands = ScanBands.split(region, poolSize,
+                Math.round(region[3] / poolSize * BAND_OVERLAP_FRACTION))
+        ensureScanners(bands.size)
+
+        val barcodes = if (bands.size == 1) {
+            scanners[0].scan(data, width, height, bands[0], density, formats)
+        } else {
+            scanBands(data, width, height, bands, density, formats)
+        }
+        counters.recordBandTimes(scanners, bands.size)
+        return barcodes
+    }
+
+    /**
+     * Scans the first band on the calling thread and the others on the band pool. Returns only
+     * once no band reads [data] anymore, as the frame is recycled right after.
+     */
+    private fun scanBands(data: ByteArray, width: Int, height: Int, bands: Array<IntArray>,
+                          density: Int, formats: Set<BarcodeFormat>): MutableList<Barcode> {
+        val pool = bandPoolFor(bands.size - 1)
+        val isCancelled = AtomicBoolean()
+        val bandsDone = CountDownLatch(bands.size - 1)
+        val futures = ArrayList<Future<List<Barcode>>>(bands.size - 1)
+        for (i in 1 until bands.size) {
+            val scanner = scanners[i]
+            val band = bands[i]
+            futures.add(pool.submit<List<Barcode>> {
+                try {
+                    if (isCancelled.get()) emptyList()
+                    else scanner.scan(data, width, height, band, density, formats)
+                } finally {
+                    bandsDone.countDown()
+                }
+            })
+        }
+
+        val merged = LinkedHashMap<String, Barcode>()
+        merge(merged, scanners[0].scan(data, width, height, bands[0], density, formats))
+        try {
+            for (future in futures) {
+                try {
+                    merge(merged, future.get())
+                } catch (e: ExecutionException) {
+                    e.printStackTrace()
+                }
+            }
+        } catch (e: InterruptedException) {
+            e.printStackTrace()
+            // Bands not started yet are skipped, the running ones are waited for
+            isCancelled.set(true)
+            awaitUninterruptibly(bandsDone)
+            Thread.currentThread().interrupt()
+        }
+        return ArrayList(merged.values)
+    }
+
+    /**
+     * Waits for the latch, the caller restores the interrupt status.
+     */
+    private fun awaitUninterruptibly(latch: CountDownLatch) {
+        while (true) {
+            try {
+                latch.await()
+                return
+            } catch (e: InterruptedException) {
+                // Interrupted again, keep waiting
+            }
+        }
+    }
+
+    /**
+     * Symbols in the overlap of two bands are decoded twice, the best quality read is kept.
+     */
+    private fun merge(merged: MutableMap<String, Barcode>, barcodes: List<Barcode>) {
+        for (barcode in barcodes) {
+            val key = "${barcode.format?.id}:${barcode.contents}"
+            val previous = merged[key]
+            if (previous == null || barcode.quality > previous.quality) {
+                merged[key] = barcode
+            }
+        }
+    }
+
+    private fun removeDuplicates(barcodes: MutableList<Barcode>) {
+        val filter = deduplicator ?: return
+        val now = SystemClock.elapsedRealtime()
+        val iterator = barcodes.iterator()
+        while (iterator.hasNext()) {
+            if (!filter.accept(iterator.next(), now)) {
+                iterator.remove()
+                counters.duplicatesSuppressed.incrementAndGet()
+            }
+        }
+    }
+
+    private fun ensureScanners(count: Int) {
+        while (scanners.size < count) {
+            scanners.add(ZBarBandScanner())
+        }
+    }
+
+    private fun bandPoolFor(threadCount: Int): ThreadPoolExecutor {
+        var pool = bandPool
+        if (pool == null || pool.corePoolSize != threadCount) {
+            pool?.shutdown()
+            val threadNumber = AtomicInteger()
+            pool = Executors.newFixedThreadPool(threadCount) { runnable ->
+                val thread = Thread(runnable, "barcodeBandThread-" + threadNumber.incrementAndGet())
+                thread.isDaemon = true
+                thread
+            } as ThreadPoolExecutor
+            bandPool = pool
+        }
+        return pool
+    }
+
+    /**
+     * Maps the [scanWindow] into the frame, the mapping is recomputed only when one of its inputs
+     * changes.
+     */
+    private fun cropFor(width: Int, height: Int, rotation: Int, isMirrored: Boolean): IntArray? {
+        val window = scanWindow ?: return null
+        val mirrored = if (isMirrored) 1 else 0
+        if (window != cropWindow || cropKey[0] != width || cropKey[1] != height ||
+                cropKey[2] != rotation || cropKey[3] != mirrored) {
+            crop = window.toFrameCrop(width, height, rotation, isMirrored)
+            cropWindow = window
+            cropKey = intArrayOf(width, height, rotation, mirrored)
+        }
+        return crop
+    }
+}
@@ -18,6 +18,7 @@ package io.nyris.camera;
 
 import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
+import android.graphics.ImageFormat;
 import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
 import android.hardware.Camera;
@@ -28,6 +29,7 @@ import android.view.MotionEvent;
 import android.view.SurfaceHolder;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -58,6 +60,7 @@ class Camera1 extends CameraViewImpl {
     private final String tag = Camera1.class.getName();
     protected Camera mCamera;
     protected boolean mShowingPreview;
+    protected volatile FrameGeometry mFrameGeometry;
     private int mCameraId;
     private Camera.Parameters mCameraParameters;
     private AspectRatio mAspectRatio;
@@ -279,6 +282,19 @@ class Camera1 extends CameraViewImpl {
         }
     }
 
+    @Override
+    int getFrameRotation() {
+        if (mCameraInfo.facing == Camera.CameraInfo.CAMERA_FACING_FRONT) {
+            return (mCameraInfo.orientation + mDisplayOrientation) % 360;
+        }
+        return calcDisplayOrientation(mDisplayOrientation);
+    }
+
+    @Override
+    boolean isFrameMirrored() {
+        return mCameraInfo.facing == Camera.CameraInfo.CAMERA_FACING_FRONT;
+    }
+
     /**
      * This rewrites {@link #mCameraId} and {@link #mCameraInfo}.
      */
@@ -350,11 +366,42 @@ class Camera1 extends CameraViewImpl {
         setAutoFocusInternal(mAutoFocus);
         setFlashInternal(mFlash);
         mCamera.setParameters(mCameraParameters);
+        updateFrameGeometry(size);
         if (mShowingPreview) {
             mCamera.startPreview();
         }
     }
 
+    /**
+     * Points the planes of {@code frame} at a preview buffer of the current
+     * {@link #mFrameGeometry}. Only the luma plane is set for other formats than NV21.
+     */
+    void setPreviewPlanes(AnalysisFrame frame, byte[] buffer) {
+        final FrameGeometry geometry = mFrameGeometry;
+        if (geometry.getFormat() == ImageFormat.NV21) {
+            frame.setNv21Planes(buffer, geometry.getWidth(), geometry.getHeight());
+        } else {
+            frame.setPlane(AnalysisFrame.PLANE_Y, ByteBuffer.wrap(buffer), geometry.getWidth(), 1);
+            frame.setPlane(AnalysisFrame.PLANE_U, null, 0, 0);
+            frame.setPlane(AnalysisFrame.PLANE_V, null, 0, 0);
+        }
+    }
+
+    /**
+     * Captures the applied preview size and format into {@link #mFrameGeometry}, so that frame
+     * consumers do not have to query {@link Camera#getParameters()} for every frame.
+     */
+    private void updateFrameGeometry(Size size) {
+        final int format = mCameraParameters.getPreviewFormat();
+        final int bufferSize = size.getWidth() * size.getHeight() *
+                ImageFormat.getBitsPerPixel(format) / 8;
+        FrameGeometry geometry = new FrameGeometry(size.getWidth(), size.getHeight(), format,
+                bufferSize);
+        if (!geometry.equals(mFrameGeometry)) {
+            mFrameGeometry = geometry;
+        }
+    }
+
     @SuppressWarnings("SuspiciousNameCombination")
     private Size chooseOptimalSize(SortedSet<Size> sizes) {
         if (!mPreview.isReady()) { // Not yet laid out
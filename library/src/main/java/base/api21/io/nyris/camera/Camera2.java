@@ -321,6 +321,34 @@ class Camera2 extends CameraViewImpl {
         mPreview.setDisplayOrientation(mDisplayOrientation);
     }
 
+    @Override
+    int getFrameRotation() {
+        if (mFacing == Constants.FACING_FRONT) {
+            return (sensorOrientation + mDisplayOrientation) % 360;
+        }
+        return (sensorOrientation - mDisplayOrientation + 360) % 360;
+    }
+
+    @Override
+    boolean isFrameMirrored() {
+        return mFacing == Constants.FACING_FRONT;
+    }
+
+    /**
+     * Points the planes of {@code frame} at the planes of a YUV_420_888 image.
+     */
+    static void setImagePlanes(AnalysisFrame frame, Image image) {
+        Image.Plane[] planes = image.getPlanes();
+        for (int i = 0; i < 3; i++) {
+            if (i < planes.length) {
+                frame.setPlane(i, planes[i].getBuffer(), planes[i].getRowStride(),
+                        planes[i].getPixelStride());
+            } else {
+                frame.setPlane(i, null, 0, 0);
+            }
+        }
+    }
+
     /**
      * <p>Chooses a camera ID by the specified camera facing ({@link #mFacing}).</p>
      * <p>This rewrites {@link #mCameraId}, {@link #mCameraCharacteristics}, and optionally
@@ -500,6 +528,35 @@ class Camera2 extends CameraViewImpl {
         return candidates.last();
     }
 
+    /**
+     * Chooses the size of an additional output stream used for frame analysis. The stream keeps
+     * the aspect ratio of the preview and is never larger than the preview.
+     *
+     * @param format        The {@link ImageFormat} of the stream
+     * @param maxLongerSide The maximum length of the longer side, 0 to use the preview size
+     * @return The picked size for the analysis stream.
+     */
+    protected Size chooseAnalysisSize(int format, int maxLongerSide) {
+        Size previewSize = chooseOptimalSize();
+        if (maxLongerSide <= 0) {
+            return previewSize;
+        }
+        StreamConfigurationMap map = mCameraCharacteristics.get(
+                CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        if (map == null) {
+            return previewSize;
+        }
+        SizeMap sizes = new SizeMap();
+        for (android.util.Size size : map.getOutputSizes(format)) {
+            sizes.add(new Size(size.getWidth(), size.getHeight()));
+        }
+        Size analysisSize = sizes.largestWithin(mAspectRatio, maxLongerSide);
+        if (analysisSize == null || analysisSize.compareTo(previewSize) >= 0) {
+            return previewSize;
+        }
+        return analysisSize;
+    }
+
     /**
      * Updates the internal state of auto-focus to {@link #mAutoFocus}.
      */
@@ -0,0 +1,165 @@
+package io.nyris.camera;
+
+/**
+ * AnalysisDutyCycle.java - Lowers the analysis frame rate while nothing happens in front of the
+ * camera.
+ *
+ * In the active state frames are admitted up to the active frame rate cap. Once no symbol was
+ * found and the scene did not move for the idle delay, the cycle switches to the idle state and
+ * caps the {@link FrameAdmission} to the idle frame rate. A detection or motion above the wake
+ * threshold switches back to the active state right away.
+ *
+ * The cycle also measures the effective analysis frame rate and the time spent in each state.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class AnalysisDutyCycle {
+    static final int STATE_ACTIVE = 0;
+    static final int STATE_IDLE = 1;
+
+    private static final float NANOS_PER_SECOND = 1e9f;
+
+    private final FrameAdmission mAdmission;
+
+    private float mActiveFps;
+    private float mIdleFps;
+    private long mIdleAfterNanos;
+    private float mWakeMotion;
+
+    private int mState = STATE_ACTIVE;
+    private long mStateSinceNanos;
+    private long mLastActivityNanos;
+    private final long[] mStateNanos = new long[2];
+
+    private long mLastFrameNanos;
+    private boolean mHasLastFrame;
+    private float mAverageFrameNanos;
+
+    /**
+     * @param admission The gate whose frame rate cap is driven by this cycle
+     * @param nowNanos  The current time, from {@link System#nanoTime()}
+     */
+    AnalysisDutyCycle(FrameAdmission admission, long nowNanos) {
+        mAdmission = admission;
+        mStateSinceNanos = nowNanos;
+        mLastActivityNanos = nowNanos;
+    }
+
+    /**
+     * @param activeFps The frame rate cap of the active state, 0 for no cap
+     */
+    synchronized void setActiveFps(float activeFps) {
+        mActiveFps = activeFps;
+        if (mState == STATE_ACTIVE) {
+            mAdmission.setMaxFps(activeFps);
+        }
+    }
+
+    /**
+     * @param idleFps        The frame rate cap of the idle state
+     * @param idleAfterNanos The time without detection nor motion before going idle, 0 to stay
+     *                       active
+     * @param wakeMotion     The motion (see {@link FrameQualityGate#getMotion()}) that wakes the
+     *                       cycle up
+     * @param nowNanos       The current time, from {@link System#nanoTime()}
+     */
+    synchronized void setIdleMode(float idleFps, long idleAfterNanos, float wakeMotion,
+                                  long nowNanos) {
+        if (idleFps <= 0 || idleAfterNanos < 0 || wakeMotion < 0) {
+            throw new IllegalArgumentException("Invalid idle mode: fps=" + idleFps
+                    + ", idleAfterNanos=" + idleAfterNanos + ", wakeMotion=" + wakeMotion);
+        }
+        mIdleFps = idleFps;
+        mIdleAfterNanos = idleAfterNanos;
+        mWakeMotion = wakeMotion;
+        mLastActivityNanos = nowNanos;
+        switchTo(STATE_ACTIVE, nowNanos);
+    }
+
+    /**
+     * Restarts the cycle active, as when the camera starts again. The time since the last
+     * analysed frame is counted neither in a state nor in the frame rate.
+     *
+     * @param nowNanos The current time, from {@link System#nanoTime()}
+     */
+    synchronized void reset(long nowNanos) {
+        if (mHasLastFrame && mLastFrameNanos > mStateSinceNanos) {
+            // The state lasted until the last frame before the pause
+            mStateNanos[mState] += mLastFrameNanos - mStateSinceNanos;
+        }
+        mState = STATE_ACTIVE;
+        mStateSinceNanos = nowNanos;
+        mLastActivityNanos = nowNanos;
+        mHasLastFrame = false;
+        mAdmission.setMaxFps(mActiveFps);
+    }
+
+    /**
+     * @return {@code true} if the idle state is used and motion should be measured.
+     */
+    synchronized boolean isIdleModeEnabled() {
+        return mIdleAfterNanos > 0;
+    }
+
+    /**
+     * Reports the outcome of an analysed frame.
+     *
+     * @param nowNanos The current time, from {@link System#nanoTime()}
+     * @param isFound  Whether a symbol was found
+     * @param motion   The motion since the previous analysed frame, 0 if unknown
+     */
+    synchronized void onFrameAnalyzed(long nowNanos, boolean isFound, float motion) {
+        if (mHasLastFrame) {
+            long interval = nowNanos - mLastFrameNanos;
+            // Exponential moving average over roughly the last 8 frames
+            mAverageFrameNanos = mAverageFrameNanos == 0
+                    ? interval : mAverageFrameNanos + (interval - mAverageFrameNanos) / 8;
+        }
+        mLastFrameNanos = nowNanos;
+        mHasLastFrame = true;
+
+        if (mIdleAfterNanos == 0) {
+            return;
+        }
+        if (isFound || motion > mWakeMotion) {
+            mLastActivityNanos = nowNanos;
+            switchTo(STATE_ACTIVE, nowNanos);
+        } else if (nowNanos - mLastActivityNanos >= mIdleAfterNanos) {
+            switchTo(STATE_IDLE, nowNanos);
+        }
+    }
+
+    synchronized int getState() {
+        return mState;
+    }
+
+    /**
+     * @return The current analysis frame rate, 0 before two frames were analysed.
+     */
+    synchronized float getEffectiveFps() {
+        return mAverageFrameNanos == 0 ? 0f : NANOS_PER_SECOND / mAverageFrameNanos;
+    }
+
+    /**
+     * @return The total time spent in {@code state} up to {@code nowNanos}, in nanoseconds.
+     */
+    synchronized long getStateNanos(int state, long nowNanos) {
+        long nanos = mStateNanos[state];
+        if (state == mState) {
+            nanos += nowNanos - mStateSinceNanos;
+        }
+        return nanos;
+    }
+
+    private void switchTo(int state, long nowNanos) {
+        if (state == mState) {
+            return;
+        }
+        mStateNanos[mState] += nowNanos - mStateSinceNanos;
+        mStateSinceNanos = nowNanos;
+        mState = state;
+        mAdmission.setMaxFps(state == STATE_IDLE ? mIdleFps : mActiveFps);
+    }
+}
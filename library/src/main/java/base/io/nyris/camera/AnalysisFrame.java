@@ -0,0 +1,208 @@
+package io.nyris.camera;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AnalysisFrame.java - YUV 4:2:0 preview frame handed to the frame consumers without copying the
+ * camera buffers.
+ *
+ * The Y, U and V planes are exposed as laid out by the camera, each with its row and pixel
+ * strides: Camera API 1 NV21 buffers give interleaved chroma planes with a pixel stride of 2,
+ * Camera API 2 YUV_420_888 images give whatever the device produces.
+ *
+ * A frame is reference counted: every consumer holding it retains it and releases it when done.
+ * Once the last reference is released the recycle handle gives the camera buffers back, after
+ * which the frame object itself is reused for a later frame.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+public final class AnalysisFrame {
+    public static final int PLANE_Y = 0;
+    public static final int PLANE_U = 1;
+    public static final int PLANE_V = 2;
+
+    /**
+     * Gives the camera buffers of a frame back once nobody holds the frame anymore. Called on the
+     * thread releasing the last reference, the frame still has its content at that point.
+     */
+    interface Recycler {
+        void recycle(AnalysisFrame frame);
+    }
+
+    private final AtomicInteger mReferences = new AtomicInteger();
+
+    private final ByteBuffer[] mPlanes = new ByteBuffer[3];
+    private final int[] mRowStrides = new int[3];
+    private final int[] mPixelStrides = new int[3];
+    private int mWidth;
+    private int mHeight;
+    private long mTimestampNanos;
+    private int mRotation;
+    private Object mSource;
+    private Recycler mRecycler;
+
+    /**
+     * Sets one plane. Planes can be set once and kept across frames when the buffers are reused.
+     *
+     * @param buffer The plane, starting at index 0
+     */
+    void setPlane(int plane, ByteBuffer buffer, int rowStride, int pixelStride) {
+        mPlanes[plane] = buffer;
+        mRowStrides[plane] = rowStride;
+        mPixelStrides[plane] = pixelStride;
+    }
+
+    /**
+     * Points the planes at an NV21 buffer: the full resolution Y plane followed by interleaved
+     * V and U samples at half resolution.
+     */
+    void setNv21Planes(byte[] data, int width, int height) {
+        int lumaSize = width * height;
+        if (data.length < lumaSize + 2 * ((width + 1) / 2) * ((height + 1) / 2)) {
+            throw new IllegalArgumentException("NV21 buffer of " + data.length +
+                    " bytes is too small for " + width + "x" + height);
+        }
+        int chromaRowStride = 2 * ((width + 1) / 2);
+        setPlane(PLANE_Y, ByteBuffer.wrap(data, 0, lumaSize).slice(), width, 1);
+        setPlane(PLANE_V, ByteBuffer.wrap(data, lumaSize, data.length - lumaSize).slice(),
+                chromaRowStride, 2);
+        setPlane(PLANE_U, ByteBuffer.wrap(data, lumaSize + 1, data.length - lumaSize - 1).slice(),
+                chromaRowStride, 2);
+    }
+
+    /**
+     * Starts a new frame on the current planes and takes the first reference on it.
+     *
+     * @param source   The camera buffer backing the planes, for the recycler
+     * @param recycler Gives {@code source} back to the camera
+     */
+    void begin(int width, int height, long timestampNanos, int rotation, Object source,
+               Recycler recycler) {
+        if (mReferences.get() != 0) {
+            throw new IllegalStateException("The frame is still in use");
+        }
+        mWidth = width;
+        mHeight = height;
+        mTimestampNanos = timestampNanos;
+        mRotation = rotation;
+        mSource = source;
+        mRecycler = recycler;
+        mReferences.set(1);
+    }
+
+    void retain() {
+        if (mReferences.getAndIncrement() <= 0) {
+            mReferences.decrementAndGet();
+            throw new IllegalStateException("The frame was already recycled");
+        }
+    }
+
+    /**
+     * Drops a reference, the last one recycles the frame.
+     */
+    void release() {
+        int references = mReferences.decrementAndGet();
+        if (references == 0) {
+            mRecycler.recycle(this);
+        } else if (references < 0) {
+            mReferences.incrementAndGet();
+            throw new IllegalStateException("The frame was released too often");
+        }
+    }
+
+    boolean isInUse() {
+        return mReferences.get() > 0;
+    }
+
+    /**
+     * @return The camera buffer backing the planes.
+     */
+    Object getSource() {
+        return mSource;
+    }
+
+    /**
+     * @return A plane for the library's own consumers, which may read its backing array.
+     */
+    ByteBuffer getPlane(int plane) {
+        return mPlanes[plane];
+    }
+
+    /**
+     * @param plane {@link #PLANE_Y}, {@link #PLANE_U} or {@link #PLANE_V}
+     * @return A read-only view of the plane at position 0, of its own for each call so that
+     * analyzers can read it relatively. Sample {@code (x, y)} of the plane is at
+     * {@code y * getRowStride(plane) + x * getPixelStride(plane)}, chroma planes having half the
+     * width and height of the frame.
+     */
+    public ByteBuffer getPlaneBuffer(int plane) {
+        ByteBuffer buffer = mPlanes[plane];
+        if (buffer == null) {
+            return null;
+        }
+        ByteBuffer view = buffer.asReadOnlyBuffer();
+        view.position(0);
+        return view;
+    }
+
+    /**
+     * @return The distance between the starts of two rows of a plane, in bytes.
+     */
+    public int getRowStride(int plane) {
+        return mRowStrides[plane];
+    }
+
+    /**
+     * @return The distance between two samples of a row of a plane, in bytes.
+     */
+    public int getPixelStride(int plane) {
+        return mPixelStrides[plane];
+    }
+
+    /**
+     * @return The luma plane, read-only.
+     */
+    public ByteBuffer getLumaBuffer() {
+        return getPlaneBuffer(PLANE_Y);
+    }
+
+    public int getLumaRowStride() {
+        return mRowStrides[PLANE_Y];
+    }
+
+    public int getLumaPixelStride() {
+        return mPixelStrides[PLANE_Y];
+    }
+
+    /**
+     * @return The frame width, in pixels.
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * @return The frame height, in pixels.
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return The capture time in nanoseconds. Only the differences between frames are
+     * meaningful.
+     */
+    public long getTimestampNanos() {
+        return mTimestampNanos;
+    }
+
+    /**
+     * @return Clockwise rotation in degrees that displays the frame upright.
+     */
+    public int getRotation() {
+        return mRotation;
+    }
+}
@@ -0,0 +1,44 @@
+package io.nyris.camera;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * AnalysisFramePool.java - Bounded pool of {@link AnalysisFrame} objects, so that delivering
+ * frames does not allocate once the pool is warm.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class AnalysisFramePool {
+    private final ArrayBlockingQueue<AnalysisFrame> mFrames;
+
+    /**
+     * @param capacity The number of idle frames kept, usually the number of camera buffers
+     */
+    AnalysisFramePool(int capacity) {
+        mFrames = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @return An idle frame, a new one if none is left.
+     */
+    AnalysisFrame acquire() {
+        AnalysisFrame frame = mFrames.poll();
+        return frame != null ? frame : new AnalysisFrame();
+    }
+
+    /**
+     * Takes a recycled frame back. Frames beyond the capacity are left to the garbage collector.
+     */
+    void recycle(AnalysisFrame frame) {
+        if (frame.isInUse()) {
+            throw new IllegalStateException("The frame is still in use");
+        }
+        mFrames.offer(frame);
+    }
+
+    int size() {
+        return mFrames.size();
+    }
+}
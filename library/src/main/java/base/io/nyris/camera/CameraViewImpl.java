@@ -100,9 +100,49 @@ abstract class CameraViewImpl {
     void addBarcodeListener(IBarcodeListener barcodeListener) {
     }
 
+    void removeBarcodeListener(IBarcodeListener barcodeListener) {
+    }
+
+    void addBarcodesListener(IBarcodesListener barcodesListener) {
+    }
+
+    void removeBarcodesListener(IBarcodesListener barcodesListener) {
+    }
+
     void enableBarcode(boolean isEnabled) {
     }
 
+    BarcodeStats getBarcodeStats() {
+        return null;
+    }
+
+    void setScanWindow(ScanWindow scanWindow) {
+    }
+
+    void setFrameQualityGate(FrameQualityGate qualityGate) {
+    }
+
+    /**
+     * Sets the analyzers the preview frames are fanned out to, {@code null} if there are none.
+     * Called again whenever analyzers are added or removed.
+     */
+    void setFrameAnalyzerDispatcher(FrameAnalyzerDispatcher dispatcher) {
+    }
+
+    /**
+     * @return Clockwise rotation in degrees that displays the preview frames upright.
+     */
+    int getFrameRotation() {
+        return 0;
+    }
+
+    /**
+     * @return {@code true} if the preview is mirrored relative to the frames.
+     */
+    boolean isFrameMirrored() {
+        return false;
+    }
+
     void enableInferenceStats(boolean enable) {
     }
 
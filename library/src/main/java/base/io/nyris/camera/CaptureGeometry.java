@@ -0,0 +1,42 @@
+package io.nyris.camera;
+
+/**
+ * CaptureGeometry.java - Size arithmetic of the captured picture outputs.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class CaptureGeometry {
+
+    private CaptureGeometry() {
+    }
+
+    /**
+     * @param rotation Clockwise rotation in degrees, a multiple of 90
+     * @return The size of the picture once rotated.
+     */
+    static Size rotate(int width, int height, int rotation) {
+        if (Math.abs(rotation) % 180 == 90) {
+            return new Size(height, width);
+        }
+        return new Size(width, height);
+    }
+
+    /**
+     * @return The largest scale that fits the picture within the bounds, preserving its aspect
+     * ratio.
+     */
+    static float fitScale(int width, int height, int maxWidth, int maxHeight) {
+        float scaleWidth = maxWidth / (float) width;
+        float scaleHeight = maxHeight / (float) height;
+        return Math.min(scaleWidth, scaleHeight);
+    }
+
+    /**
+     * @return The picture size scaled down by {@code scale}, truncated to whole pixels.
+     */
+    static Size scale(int width, int height, float scale) {
+        return new Size((int) (width * scale), (int) (height * scale));
+    }
+}
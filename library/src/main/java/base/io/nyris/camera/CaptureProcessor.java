@@ -0,0 +1,157 @@
+package io.nyris.camera;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CaptureProcessor.java - Runs the post-processing of captured pictures in the background and
+ * delivers the results in capture order.
+ *
+ * Each capture takes a sequence number when it is submitted. A result that completes before the
+ * results of earlier captures is held back until they have been handed to the delivery executor,
+ * which must run its tasks one at a time and in order.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class CaptureProcessor {
+
+    /**
+     * Receives the result of one capture on the delivery executor.
+     */
+    interface Receiver<T> {
+        void onResult(T result);
+
+        void onError(Exception e);
+    }
+
+    private final Executor mProcessingExecutor;
+    private volatile Executor mDeliveryExecutor;
+
+    private final Object mLock = new Object();
+    // Completed deliveries waiting for the earlier captures, by sequence number
+    private final Map<Long, Runnable> mCompleted = new HashMap<>();
+    private long mNextSequence;
+    private long mNextDelivery;
+    private boolean mIsDraining;
+
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+    private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+
+    /**
+     * @param processingExecutor Runs the post-processing
+     * @param deliveryExecutor   Runs the receivers, one at a time
+     */
+    CaptureProcessor(Executor processingExecutor, Executor deliveryExecutor) {
+        mProcessingExecutor = processingExecutor;
+        mDeliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Sets the executor the receivers run on. Results not handed over yet go to the new executor.
+     */
+    void setDeliveryExecutor(Executor deliveryExecutor) {
+        mDeliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Queues the post-processing of a capture.
+     *
+     * @param task     Processes the capture on the processing executor
+     * @param receiver Gets the result, or the exception thrown by {@code task}
+     */
+    <T> void submit(final Callable<T> task, final Receiver<T> receiver) {
+        final long sequence;
+        synchronized (mLock) {
+            sequence = mNextSequence++;
+        }
+        int depth = mQueueDepth.incrementAndGet();
+        int max;
+        while (depth > (max = mMaxQueueDepth.get()) && !mMaxQueueDepth.compareAndSet(max, depth)) {
+            // Retry until the maximum is at least the current depth
+        }
+
+        mProcessingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                T result = null;
+                Exception error = null;
+                try {
+                    result = task.call();
+                } catch (Exception e) {
+                    error = e;
+                }
+                complete(sequence, delivery(receiver, result, error));
+            }
+        });
+    }
+
+    /**
+     * @return The number of captures submitted whose receiver has not returned yet.
+     */
+    int getQueueDepth() {
+        return mQueueDepth.get();
+    }
+
+    /**
+     * @return The highest {@link #getQueueDepth()} seen so far.
+     */
+    int getMaxQueueDepth() {
+        return mMaxQueueDepth.get();
+    }
+
+    private <T> Runnable delivery(final Receiver<T> receiver, final T result,
+                                  final Exception error) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (error != null) {
+                        receiver.onError(error);
+                    } else {
+                        receiver.onResult(result);
+                    }
+                } finally {
+                    mQueueDepth.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    /**
+     * Hands over every delivery that is next in sequence. Only one thread drains at a time, so
+     * the deliveries reach the executor in order.
+     */
+    private void complete(long sequence, Runnable delivery) {
+        synchronized (mLock) {
+            mCompleted.put(sequence, delivery);
+            if (mIsDraining) {
+                return;
+            }
+            mIsDraining = true;
+        }
+        while (true) {
+            Runnable next;
+            synchronized (mLock) {
+                next = mCompleted.remove(mNextDelivery);
+                if (next == null) {
+                    mIsDraining = false;
+                    return;
+                }
+                mNextDelivery++;
+            }
+            try {
+                mDeliveryExecutor.execute(next);
+            } catch (RuntimeException e) {
+                synchronized (mLock) {
+                    mIsDraining = false;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.nyris.camera;
+
+/**
+ * DecodePlan.java - Plans how much of a JPEG to decode for a given output size, so that large
+ * pictures are never decoded at full resolution just to be scaled down.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class DecodePlan {
+
+    private DecodePlan() {
+    }
+
+    /**
+     * Picks the {@code inSampleSize} of the decode.
+     *
+     * @param width        The encoded width, in pixels
+     * @param height       The encoded height, in pixels
+     * @param targetWidth  The output width, in encoded orientation
+     * @param targetHeight The output height, in encoded orientation
+     * @return The largest power of two that keeps the decoded picture at least as large as the
+     * output, 1 when the output is not smaller than the picture.
+     */
+    static int sampleSize(int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return 1;
+        }
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= targetWidth &&
+                height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -13,12 +13,103 @@ import android.util.Log;
 class Exif {
     private static final String TAG = "CameraExif";
 
+    // Results of findOrientation when the tag is not found
+    private static final int NO_EXIF = -1;
+    private static final int NO_ORIENTATION = -2;
+    private static final int INVALID_LENGTH = -3;
+    private static final int INVALID_BYTE_ORDER = -4;
+    private static final int INVALID_OFFSET = -5;
+
     // Returns the degrees in clockwise. Values are 0, 90, 180, or 270.
     static float getOrientation(byte[] jpeg) {
         if (jpeg == null) {
             return 0;
         }
 
+        boolean[] littleEndian = new boolean[1];
+        int offset = findOrientation(jpeg, littleEndian);
+        switch (offset) {
+            case INVALID_LENGTH:
+                Log.e(TAG, "Invalid length");
+                return 0;
+            case INVALID_BYTE_ORDER:
+                Log.e(TAG, "Invalid byte order");
+                return 0;
+            case INVALID_OFFSET:
+                Log.e(TAG, "Invalid offset");
+                return 0;
+            case NO_EXIF:
+            case NO_ORIENTATION:
+                Log.i(TAG, "Orientation not found");
+                return 0;
+        }
+
+        // We do not really care about type and count, do we?
+        int orientation = pack(jpeg, offset, 2, littleEndian[0]);
+        switch (orientation) {
+            case 1:
+                return 0;
+            case 3:
+                return 180;
+            case 6:
+                return 90;
+            case 8:
+                return 270;
+        }
+        Log.i(TAG, "Unsupported orientation");
+        return 0;
+    }
+
+    /**
+     * Overwrites the orientation tag in place, the rest of the JPEG is left untouched.
+     *
+     * @param degrees Clockwise rotation that displays the picture upright: 0, 90, 180 or 270
+     * @return Whether the JPEG has an orientation tag that was written.
+     */
+    static boolean setOrientation(byte[] jpeg, int degrees) {
+        int value = toOrientationValue(degrees);
+        boolean[] littleEndian = new boolean[1];
+        int offset = findOrientation(jpeg, littleEndian);
+        if (offset < 0) {
+            return false;
+        }
+        unpack(jpeg, offset, 2, littleEndian[0], value);
+        return true;
+    }
+
+    /**
+     * Makes the JPEG carry the given orientation without touching its pixels. The tag is
+     * overwritten in place when present, otherwise it is added by {@link ExifEditor}, which
+     * splices an EXIF segment in when the JPEG has none.
+     *
+     * @param degrees Clockwise rotation that displays the picture upright: 0, 90, 180 or 270
+     * @return {@code jpeg} itself when it was patched in place or is already upright without a
+     * tag, a copy with the tag added, or {@code null} when the EXIF data is malformed.
+     */
+    static byte[] withOrientation(byte[] jpeg, int degrees) {
+        if (setOrientation(jpeg, degrees)) {
+            return jpeg;
+        }
+        if (toOrientationValue(degrees) == 1) {
+            // No orientation means upright
+            return jpeg;
+        }
+        try {
+            ExifEditor editor = new ExifEditor(jpeg);
+            editor.setOrientation(degrees);
+            return editor.toByteArray();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the value of the orientation tag.
+     *
+     * @param littleEndian Receives the byte order of the EXIF data
+     * @return The offset of the 2 byte orientation value, or one of the negative results.
+     */
+    private static int findOrientation(byte[] jpeg, boolean[] littleEndian) {
         int offset = 0;
         int length = 0;
 
@@ -44,8 +135,7 @@ class Exif {
             // Get the length and check if it is reasonable.
             length = pack(jpeg, offset, 2, false);
             if (length < 2 || offset + length > jpeg.length) {
-                Log.e(TAG, "Invalid length");
-                return 0;
+                return INVALID_LENGTH;
             }
 
             // Break if the marker is EXIF in APP1.
@@ -67,52 +157,49 @@ class Exif {
             // Identify the byte order.
             int tag = pack(jpeg, offset, 4, false);
             if (tag != 0x49492A00 && tag != 0x4D4D002A) {
-                Log.e(TAG, "Invalid byte order");
-                return 0;
+                return INVALID_BYTE_ORDER;
             }
-            boolean littleEndian = (tag == 0x49492A00);
+            littleEndian[0] = (tag == 0x49492A00);
 
             // Get the offset and check if it is reasonable.
-            int count = pack(jpeg, offset + 4, 4, littleEndian) + 2;
+            int count = pack(jpeg, offset + 4, 4, littleEndian[0]) + 2;
             if (count < 10 || count > length) {
-                Log.e(TAG, "Invalid offset");
-                return 0;
+                return INVALID_OFFSET;
             }
             offset += count;
             length -= count;
 
             // Get the count and go through all the elements.
-            count = pack(jpeg, offset - 2, 2, littleEndian);
+            count = pack(jpeg, offset - 2, 2, littleEndian[0]);
             while (count-- > 0 && length >= 12) {
                 // Get the tag and check if it is orientation.
-                tag = pack(jpeg, offset, 2, littleEndian);
+                tag = pack(jpeg, offset, 2, littleEndian[0]);
                 if (tag == 0x0112) {
-                    // We do not really care about type and count, do we?
-                    int orientation = pack(jpeg, offset + 8, 2, littleEndian);
-                    switch (orientation) {
-                        case 1:
-                            return 0;
-                        case 3:
-                            return 180;
-                        case 6:
-                            return 90;
-                        case 8:
-                            return 270;
-                    }
-                    Log.i(TAG, "Unsupported orientation");
-                    return 0;
+                    return offset + 8;
                 }
                 offset += 12;
                 length -= 12;
             }
+            return NO_ORIENTATION;
         }
+        return NO_EXIF;
+    }
 
-        Log.i(TAG, "Orientation not found");
-        return 0;
+    static int toOrientationValue(int degrees) {
+        switch ((degrees % 360 + 360) % 360) {
+            case 0:
+                return 1;
+            case 90:
+                return 6;
+            case 180:
+                return 3;
+            case 270:
+                return 8;
+        }
+        throw new IllegalArgumentException("Unsupported rotation " + degrees);
     }
 
-    private static int pack(byte[] bytes, int offset, int length,
-                            boolean littleEndian) {
+    static int pack(byte[] bytes, int offset, int length, boolean littleEndian) {
         int step = 1;
         if (littleEndian) {
             offset += length - 1;
@@ -126,4 +213,28 @@ class Exif {
         }
         return value;
     }
+
+    /**
+     * Writes {@code value} the way {@link #pack} reads it.
+     *
+     * @return The offset right after the written bytes.
+     */
+    static int unpack(byte[] bytes, int offset, int length, boolean littleEndian, int value) {
+        for (int i = 0; i < length; i++) {
+            int shift = 8 * (littleEndian ? i : length - 1 - i);
+            bytes[offset + i] = (byte) (value >>> shift);
+        }
+        return offset + length;
+    }
+
+    /**
+     * @return Where a new EXIF segment goes: after the start of image and the JFIF header.
+     */
+    static int segmentInsertOffset(byte[] jpeg) {
+        int offset = 2;
+        if (jpeg.length > 5 && (jpeg[2] & 0xFF) == 0xFF && (jpeg[3] & 0xFF) == 0xE0) {
+            offset += 2 + pack(jpeg, 4, 2, false);
+        }
+        return Math.min(offset, jpeg.length);
+    }
 }
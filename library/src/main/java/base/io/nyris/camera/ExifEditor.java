@@ -0,0 +1,453 @@
+package io.nyris.camera;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * ExifEditor.java - Reads and edits the EXIF tags of a JPEG without decoding its image data.
+ *
+ * The EXIF segment is parsed where it lies in the JPEG. A tag that already exists with enough room
+ * for its new value is overwritten in place, so {@link #toByteArray()} returns the same array. Any
+ * other edit rebuilds the directory it belongs to at the end of the EXIF data, leaving the
+ * existing values where they are, and splices the grown segment into a copy of the JPEG. A JPEG
+ * without EXIF data gets a new segment right after its JFIF header.
+ *
+ * Tags of the main image directory (IFD0) and of the EXIF directory are supported, with ASCII,
+ * SHORT and LONG values.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+public final class ExifEditor {
+    /**
+     * The main image directory.
+     */
+    public static final int IFD_0 = 0;
+    /**
+     * The EXIF directory, referenced from {@link #IFD_0}.
+     */
+    public static final int IFD_EXIF = 1;
+
+    public static final int TAG_IMAGE_DESCRIPTION = 0x010E;
+    public static final int TAG_MAKE = 0x010F;
+    public static final int TAG_MODEL = 0x0110;
+    public static final int TAG_ORIENTATION = 0x0112;
+    public static final int TAG_SOFTWARE = 0x0131;
+    public static final int TAG_DATE_TIME = 0x0132;
+    public static final int TAG_ARTIST = 0x013B;
+    public static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+    public static final int TAG_DATE_TIME_DIGITIZED = 0x9004;
+
+    public static final int TYPE_ASCII = 2;
+    public static final int TYPE_SHORT = 3;
+    public static final int TYPE_LONG = 4;
+
+    private static final int TAG_EXIF_IFD_POINTER = 0x8769;
+    private static final int EXIF_HEADER_LENGTH = 6;
+    private static final int TIFF_HEADER_LENGTH = 8;
+    private static final int ENTRY_LENGTH = 12;
+    private static final int MAX_SEGMENT_LENGTH = 0xFFFF;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    /**
+     * One directory entry. {@link #mValue} is set for edits that could not be made in place, in
+     * the byte order of the EXIF data.
+     */
+    private static final class Entry {
+        final int mTag;
+        int mType;
+        int mCount;
+        // Absolute offset of the 12 byte entry, -1 for a new entry
+        int mOffset = -1;
+        byte[] mValue;
+
+        Entry(int tag) {
+            mTag = tag;
+        }
+    }
+
+    private byte[] mJpeg;
+    // Offset of the APP1 marker, -1 without EXIF segment
+    private int mSegmentOffset;
+    private int mSegmentLength;
+    private int mTiffOffset;
+    private boolean mLittleEndian;
+    private int mNextIfdOffset;
+    private final List<TreeMap<Integer, Entry>> mIfds =
+            Arrays.asList(new TreeMap<Integer, Entry>(), new TreeMap<Integer, Entry>());
+    private final boolean[] mIsIfdDirty = new boolean[2];
+
+    /**
+     * Parses the EXIF segment of a JPEG. The array is edited in place when possible.
+     *
+     * @throws IllegalArgumentException when the data is not a JPEG or its EXIF data is malformed
+     */
+    public ExifEditor(@NonNull byte[] jpeg) {
+        parse(jpeg);
+    }
+
+    /**
+     * @return The integer value of a SHORT or LONG tag, {@code defaultValue} when it is not set.
+     */
+    public int getInt(int ifd, int tag, int defaultValue) {
+        Entry entry = mIfds.get(ifd).get(tag);
+        if (entry == null || (entry.mType != TYPE_SHORT && entry.mType != TYPE_LONG) ||
+                entry.mCount < 1) {
+            return defaultValue;
+        }
+        int size = entry.mType == TYPE_SHORT ? 2 : 4;
+        if (entry.mValue != null) {
+            return Exif.pack(entry.mValue, 0, size, mLittleEndian);
+        }
+        return Exif.pack(mJpeg, valueOffset(entry), size, mLittleEndian);
+    }
+
+    /**
+     * @return The value of an ASCII tag up to its first NUL, {@code null} when it is not set.
+     */
+    @Nullable
+    public String getString(int ifd, int tag) {
+        Entry entry = mIfds.get(ifd).get(tag);
+        if (entry == null || entry.mType != TYPE_ASCII) {
+            return null;
+        }
+        byte[] data = entry.mValue != null ? entry.mValue : mJpeg;
+        int start = entry.mValue != null ? 0 : valueOffset(entry);
+        int end = start;
+        while (end < start + entry.mCount && data[end] != 0) {
+            end++;
+        }
+        return new String(data, start, end - start, ASCII);
+    }
+
+    /**
+     * Sets a SHORT or LONG tag.
+     */
+    public void setInt(int ifd, int tag, int type, int value) {
+        if (type != TYPE_SHORT && type != TYPE_LONG) {
+            throw new IllegalArgumentException("Unsupported integer type " + type);
+        }
+        byte[] bytes = new byte[type == TYPE_SHORT ? 2 : 4];
+        Exif.unpack(bytes, 0, bytes.length, mLittleEndian, value);
+        set(ifd, tag, type, 1, bytes);
+    }
+
+    /**
+     * Sets an ASCII tag. An existing value that is longer is padded with NULs.
+     */
+    public void setString(int ifd, int tag, @NonNull String value) {
+        byte[] text = value.getBytes(ASCII);
+        byte[] bytes = new byte[text.length + 1];
+        System.arraycopy(text, 0, bytes, 0, text.length);
+        set(ifd, tag, TYPE_ASCII, bytes.length, bytes);
+    }
+
+    /**
+     * Sets the orientation tag.
+     *
+     * @param degrees Clockwise rotation that displays the picture upright: 0, 90, 180 or 270
+     */
+    public void setOrientation(int degrees) {
+        setInt(IFD_0, TAG_ORIENTATION, TYPE_SHORT, Exif.toOrientationValue(degrees));
+    }
+
+    /**
+     * Sets the modification, original and digitized timestamps.
+     *
+     * @param timeMillis The time, written in the local time zone as EXIF does not store one
+     */
+    public void setDateTime(long timeMillis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy:MM:dd HH:mm:ss", Locale.US);
+        format.setTimeZone(TimeZone.getDefault());
+        String dateTime = format.format(new Date(timeMillis));
+        setString(IFD_0, TAG_DATE_TIME, dateTime);
+        setString(IFD_EXIF, TAG_DATE_TIME_ORIGINAL, dateTime);
+        setString(IFD_EXIF, TAG_DATE_TIME_DIGITIZED, dateTime);
+    }
+
+    /**
+     * @return Whether {@link #toByteArray()} has to copy the JPEG.
+     */
+    public boolean needsCopy() {
+        return mIsIfdDirty[IFD_0] || mIsIfdDirty[IFD_EXIF];
+    }
+
+    /**
+     * @return The edited JPEG: the original array when every edit was made in place, otherwise a
+     * copy with the rebuilt EXIF segment.
+     * @throws IllegalStateException when the EXIF data outgrows its segment
+     */
+    @NonNull
+    public byte[] toByteArray() {
+        if (!needsCopy()) {
+            return mJpeg;
+        }
+        byte[] tiff = rebuildTiff();
+        int segmentLength = 2 + EXIF_HEADER_LENGTH + tiff.length;
+        if (segmentLength > MAX_SEGMENT_LENGTH) {
+            throw new IllegalStateException("The EXIF data does not fit in a segment");
+        }
+
+        int insertAt;
+        int removed;
+        if (mSegmentOffset >= 0) {
+            insertAt = mSegmentOffset;
+            removed = 2 + mSegmentLength;
+        } else {
+            insertAt = Exif.segmentInsertOffset(mJpeg);
+            removed = 0;
+        }
+        byte[] output = new byte[mJpeg.length - removed + 2 + segmentLength];
+        System.arraycopy(mJpeg, 0, output, 0, insertAt);
+        int offset = insertAt;
+        offset = Exif.unpack(output, offset, 2, false, 0xFFE1);
+        offset = Exif.unpack(output, offset, 2, false, segmentLength);
+        offset = Exif.unpack(output, offset, 4, false, 0x45786966);
+        offset = Exif.unpack(output, offset, 2, false, 0);
+        System.arraycopy(tiff, 0, output, offset, tiff.length);
+        offset += tiff.length;
+        System.arraycopy(mJpeg, insertAt + removed, output, offset,
+                mJpeg.length - insertAt - removed);
+
+        parse(output);
+        return output;
+    }
+
+    private void set(int ifd, int tag, int type, int count, byte[] value) {
+        if (tag == TAG_EXIF_IFD_POINTER) {
+            throw new IllegalArgumentException(
+                    "The EXIF directory pointer is managed by the editor");
+        }
+        Entry entry = mIfds.get(ifd).get(tag);
+        if (entry != null && entry.mValue == null && entry.mType == type &&
+                entry.mCount * typeSize(type) >= value.length &&
+                (type == TYPE_ASCII || entry.mCount == count)) {
+            // Enough room where the value is, pad the rest
+            int offset = valueOffset(entry);
+            for (int i = 0; i < entry.mCount * typeSize(type); i++) {
+                mJpeg[offset + i] = i < value.length ? value[i] : 0;
+            }
+            return;
+        }
+        if (entry == null) {
+            entry = new Entry(tag);
+            mIfds.get(ifd).put(tag, entry);
+        }
+        entry.mType = type;
+        entry.mCount = count;
+        entry.mValue = value;
+        mIsIfdDirty[ifd] = true;
+        if (ifd == IFD_EXIF) {
+            // The new EXIF directory has to be referenced from IFD0
+            mIsIfdDirty[IFD_0] = true;
+        }
+    }
+
+    private void parse(byte[] jpeg) {
+        mJpeg = jpeg;
+        mSegmentOffset = -1;
+        mSegmentLength = 0;
+        mLittleEndian = false;
+        mNextIfdOffset = 0;
+        mIfds.get(IFD_0).clear();
+        mIfds.get(IFD_EXIF).clear();
+        mIsIfdDirty[IFD_0] = false;
+        mIsIfdDirty[IFD_EXIF] = false;
+
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            throw new IllegalArgumentException("Not a JPEG");
+        }
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            if (marker == 0xFF) {
+                offset++;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                break;
+            }
+            int length = Exif.pack(jpeg, offset + 2, 2, false);
+            if (length < 2 || offset + 2 + length > jpeg.length) {
+                throw new IllegalArgumentException("Invalid segment length");
+            }
+            if (marker == 0xE1 && length >= 2 + EXIF_HEADER_LENGTH + TIFF_HEADER_LENGTH &&
+                    Exif.pack(jpeg, offset + 4, 4, false) == 0x45786966 &&
+                    Exif.pack(jpeg, offset + 8, 2, false) == 0) {
+                mSegmentOffset = offset;
+                mSegmentLength = length;
+                parseTiff(offset + 4 + EXIF_HEADER_LENGTH, length - 2 - EXIF_HEADER_LENGTH);
+                return;
+            }
+            offset += 2 + length;
+        }
+    }
+
+    private void parseTiff(int tiffOffset, int tiffLength) {
+        mTiffOffset = tiffOffset;
+        int byteOrder = Exif.pack(mJpeg, tiffOffset, 4, false);
+        if (byteOrder != 0x49492A00 && byteOrder != 0x4D4D002A) {
+            throw new IllegalArgumentException("Invalid byte order");
+        }
+        mLittleEndian = byteOrder == 0x49492A00;
+        int ifd0 = Exif.pack(mJpeg, tiffOffset + 4, 4, mLittleEndian);
+        mNextIfdOffset = parseIfd(IFD_0, ifd0, tiffLength);
+        Entry pointer = mIfds.get(IFD_0).get(TAG_EXIF_IFD_POINTER);
+        if (pointer != null) {
+            int exifIfd = Exif.pack(mJpeg, valueOffset(pointer), 4, mLittleEndian);
+            parseIfd(IFD_EXIF, exifIfd, tiffLength);
+        }
+    }
+
+    /**
+     * @return The offset of the next directory.
+     */
+    private int parseIfd(int ifd, int ifdOffset, int tiffLength) {
+        if (ifdOffset < TIFF_HEADER_LENGTH || ifdOffset + 2 > tiffLength) {
+            throw new IllegalArgumentException("Invalid directory offset");
+        }
+        int count = Exif.pack(mJpeg, mTiffOffset + ifdOffset, 2, mLittleEndian);
+        int end = ifdOffset + 2 + count * ENTRY_LENGTH;
+        if (end + 4 > tiffLength) {
+            throw new IllegalArgumentException("Invalid directory length");
+        }
+        for (int i = 0; i < count; i++) {
+            int offset = mTiffOffset + ifdOffset + 2 + i * ENTRY_LENGTH;
+            Entry entry = new Entry(Exif.pack(mJpeg, offset, 2, mLittleEndian));
+            entry.mType = Exif.pack(mJpeg, offset + 2, 2, mLittleEndian);
+            entry.mCount = Exif.pack(mJpeg, offset + 4, 4, mLittleEndian);
+            entry.mOffset = offset;
+            long size = (long) entry.mCount * typeSize(entry.mType);
+            // Offsets are unsigned, values out of line start after the TIFF header
+            long valueOffset = Exif.pack(mJpeg, offset + 8, 4, mLittleEndian) & 0xFFFFFFFFL;
+            if (entry.mCount < 0 || (size > 4 &&
+                    (valueOffset < TIFF_HEADER_LENGTH || valueOffset > tiffLength - size))) {
+                throw new IllegalArgumentException("Invalid value offset");
+            }
+            mIfds.get(ifd).put(entry.mTag, entry);
+        }
+        return Exif.pack(mJpeg, mTiffOffset + end, 4, mLittleEndian);
+    }
+
+    /**
+     * Copies the TIFF data and appends the dirty directories, with the values that do not fit in
+     * their entry. Existing values keep their offsets.
+     */
+    private byte[] rebuildTiff() {
+        int oldLength = mSegmentOffset >= 0 ? mSegmentLength - 2 - EXIF_HEADER_LENGTH : 0;
+        int capacity = Math.max(oldLength, TIFF_HEADER_LENGTH) + ifdSize(IFD_0) +
+                ifdSize(IFD_EXIF) + 2;
+        byte[] tiff = new byte[capacity];
+        if (mSegmentOffset >= 0) {
+            System.arraycopy(mJpeg, mTiffOffset, tiff, 0, oldLength);
+        } else {
+            Exif.unpack(tiff, 0, 4, false, 0x4D4D002A);
+            oldLength = TIFF_HEADER_LENGTH;
+        }
+        int length = oldLength;
+
+        if (mIsIfdDirty[IFD_EXIF]) {
+            length += length & 1;
+            int exifIfd = length;
+            length = writeIfd(tiff, length, IFD_EXIF, 0);
+            Entry pointer = mIfds.get(IFD_0).get(TAG_EXIF_IFD_POINTER);
+            if (pointer == null) {
+                pointer = new Entry(TAG_EXIF_IFD_POINTER);
+                mIfds.get(IFD_0).put(TAG_EXIF_IFD_POINTER, pointer);
+            }
+            pointer.mType = TYPE_LONG;
+            pointer.mCount = 1;
+            pointer.mValue = new byte[4];
+            Exif.unpack(pointer.mValue, 0, 4, mLittleEndian, exifIfd);
+        }
+        length += length & 1;
+        int ifd0 = length;
+        length = writeIfd(tiff, length, IFD_0, mNextIfdOffset);
+        Exif.unpack(tiff, 4, 4, mLittleEndian, ifd0);
+
+        byte[] output = new byte[length];
+        System.arraycopy(tiff, 0, output, 0, length);
+        return output;
+    }
+
+    /**
+     * @return The offset right after the directory and its values.
+     */
+    private int writeIfd(byte[] tiff, int ifdOffset, int ifd, int nextIfdOffset) {
+        Map<Integer, Entry> entries = mIfds.get(ifd);
+        int offset = ifdOffset;
+        Exif.unpack(tiff, offset, 2, mLittleEndian, entries.size());
+        offset += 2;
+        int valuesOffset = offset + entries.size() * ENTRY_LENGTH + 4;
+        for (Entry entry : entries.values()) {
+            if (entry.mValue == null) {
+                // Unchanged, its value stays where it is
+                System.arraycopy(mJpeg, entry.mOffset, tiff, offset, ENTRY_LENGTH);
+            } else {
+                Exif.unpack(tiff, offset, 2, mLittleEndian, entry.mTag);
+                Exif.unpack(tiff, offset + 2, 2, mLittleEndian, entry.mType);
+                Exif.unpack(tiff, offset + 4, 4, mLittleEndian, entry.mCount);
+                byte[] value = entry.mValue;
+                if (value.length <= 4) {
+                    System.arraycopy(value, 0, tiff, offset + 8, value.length);
+                } else {
+                    Exif.unpack(tiff, offset + 8, 4, mLittleEndian, valuesOffset);
+                    System.arraycopy(value, 0, tiff, valuesOffset, value.length);
+                    valuesOffset += value.length + (value.length & 1);
+                }
+            }
+            offset += ENTRY_LENGTH;
+        }
+        Exif.unpack(tiff, offset, 4, mLittleEndian, nextIfdOffset);
+        return valuesOffset;
+    }
+
+    private int ifdSize(int ifd) {
+        // The EXIF pointer may be added to IFD0
+        int size = 2 + (mIfds.get(ifd).size() + 1) * ENTRY_LENGTH + 4;
+        for (Entry entry : mIfds.get(ifd).values()) {
+            if (entry.mValue != null && entry.mValue.length > 4) {
+                size += entry.mValue.length + 1;
+            }
+        }
+        return size;
+    }
+
+    private int valueOffset(Entry entry) {
+        if (entry.mCount * typeSize(entry.mType) <= 4) {
+            return entry.mOffset + 8;
+        }
+        return mTiffOffset + Exif.pack(mJpeg, entry.mOffset + 8, 4, mLittleEndian);
+    }
+
+    private static int typeSize(int type) {
+        switch (type) {
+            case TYPE_SHORT:
+                return 2;
+            case 4: // LONG
+            case 9: // SLONG
+                return 4;
+            case 5: // RATIONAL
+            case 10: // SRATIONAL
+            case 12: // DOUBLE
+                return 8;
+            case 8: // SSHORT
+                return 2;
+            case 11: // FLOAT
+                return 4;
+            default: // BYTE, ASCII, SBYTE, UNDEFINED
+                return 1;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.nyris.camera;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FrameAdmission.java - Lock-free gate deciding which camera frames are analysed.
+ *
+ * A frame is admitted when analysis is enabled, the analysis frame rate cap allows it and, for an
+ * exclusive gate, no previously admitted frame is still being analysed. Admissions are paced on a
+ * fixed schedule, so a 30 fps camera capped at 10 fps gets exactly every third frame analysed
+ * rather than a rate drifting with the frame timing.
+ *
+ * All methods can be called from any thread.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class FrameAdmission {
+    private static final long NEVER = Long.MIN_VALUE;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final boolean mIsExclusive;
+    private final AtomicBoolean mIsInFlight = new AtomicBoolean();
+    private final AtomicLong mNextAdmissionNanos = new AtomicLong(NEVER);
+    private volatile boolean mIsEnabled = true;
+    private volatile long mMinIntervalNanos;
+
+    /**
+     * @param isExclusive {@code true} to admit no frame until the last admitted frame is
+     *                    {@link #finish() finished}
+     */
+    FrameAdmission(boolean isExclusive) {
+        mIsExclusive = isExclusive;
+    }
+
+    void setEnabled(boolean isEnabled) {
+        mIsEnabled = isEnabled;
+    }
+
+    boolean isEnabled() {
+        return mIsEnabled;
+    }
+
+    /**
+     * @param maxFps The maximum number of frames admitted per second, 0 for no cap
+     */
+    void setMaxFps(float maxFps) {
+        if (maxFps < 0) {
+            throw new IllegalArgumentException("The frame rate cap must not be negative");
+        }
+        mMinIntervalNanos = maxFps == 0 ? 0 : (long) (NANOS_PER_SECOND / maxFps);
+        // Start over with the next frame, an admission scheduled far ahead must not hold it back
+        mNextAdmissionNanos.set(NEVER);
+    }
+
+    float getMaxFps() {
+        long interval = mMinIntervalNanos;
+        return interval == 0 ? 0f : NANOS_PER_SECOND / (float) interval;
+    }
+
+    /**
+     * Decides whether a frame is analysed. An admitted frame of an exclusive gate must be handed
+     * back with {@link #finish()} once its analysis is done, even if it failed.
+     *
+     * @param nowNanos The frame arrival time, from {@link System#nanoTime()}
+     * @return {@code true} if the frame should be analysed.
+     */
+    boolean tryAdmit(long nowNanos) {
+        if (!mIsEnabled) {
+            return false;
+        }
+        long interval = mMinIntervalNanos;
+        long next = mNextAdmissionNanos.get();
+        if (interval > 0 && next != NEVER && nowNanos - next < 0) {
+            return false;
+        }
+        if (mIsExclusive && !mIsInFlight.compareAndSet(false, true)) {
+            return false;
+        }
+        if (interval > 0) {
+            // Keep the schedule unless the frames came in more than an interval late
+            long newNext = next != NEVER && nowNanos - next < interval
+                    ? next + interval : nowNanos + interval;
+            if (!mNextAdmissionNanos.compareAndSet(next, newNext)) {
+                // Another thread took this slot
+                if (mIsExclusive) {
+                    mIsInFlight.set(false);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the analysis of the last admitted frame as done.
+     */
+    void finish() {
+        mIsInFlight.set(false);
+    }
+}
@@ -0,0 +1,22 @@
+package io.nyris.camera
+
+/**
+ * FrameAnalyzer.kt - Consumer of the preview frames, added with [BaseCameraView.addFrameAnalyzer]
+ *
+ * Each analyzer runs on its own thread. While it is busy with a frame, the frames arriving in the
+ * meantime are dropped for this analyzer only, a slow analyzer never holds back the other
+ * analyzers or the barcode decoding.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+interface FrameAnalyzer {
+    /**
+     * Called on the analyzer thread for every frame the analyzer keeps up with.
+     *
+     * @param frame the frame, only valid until this method returns: its buffers go back to the
+     * camera afterwards. Copy what has to be kept.
+     */
+    fun analyze(frame: AnalysisFrame)
+}
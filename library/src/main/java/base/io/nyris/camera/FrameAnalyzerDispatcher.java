@@ -0,0 +1,136 @@
+package io.nyris.camera;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FrameAnalyzerDispatcher.java - Fans the preview frames out to the {@link FrameAnalyzer}s.
+ *
+ * Every analyzer gets its own thread and holds at most one frame: a frame arriving while the
+ * analyzer is busy is dropped for that analyzer only.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class FrameAnalyzerDispatcher {
+    private final CopyOnWriteArrayList<Slot> mSlots = new CopyOnWriteArrayList<>();
+
+    /**
+     * Adds an analyzer running on a thread of its own.
+     */
+    void addAnalyzer(FrameAnalyzer analyzer) {
+        if (find(analyzer) != null) {
+            return;
+        }
+        final String name = "frameAnalyzer-" + analyzer.getClass().getSimpleName();
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mSlots.add(new Slot(analyzer, executor, executor));
+    }
+
+    /**
+     * Adds an analyzer running on the given executor, which stays owned by the caller.
+     */
+    void addAnalyzer(FrameAnalyzer analyzer, Executor executor) {
+        if (find(analyzer) == null) {
+            mSlots.add(new Slot(analyzer, executor, null));
+        }
+    }
+
+    /**
+     * Removes an analyzer. A frame it is analysing is allowed to finish.
+     */
+    void removeAnalyzer(FrameAnalyzer analyzer) {
+        Slot slot = find(analyzer);
+        if (slot == null || !mSlots.remove(slot)) {
+            return;
+        }
+        if (slot.mOwnedExecutor != null) {
+            slot.mOwnedExecutor.shutdown();
+        }
+    }
+
+    boolean hasAnalyzers() {
+        return !mSlots.isEmpty();
+    }
+
+    int getAnalyzerCount() {
+        return mSlots.size();
+    }
+
+    /**
+     * @return The number of frames the analyzer was too busy for, -1 if it is not added.
+     */
+    long getDroppedFrames(FrameAnalyzer analyzer) {
+        Slot slot = find(analyzer);
+        return slot == null ? -1 : slot.mDroppedFrames.get();
+    }
+
+    /**
+     * Hands a frame to every analyzer that is not busy. The caller keeps its own reference.
+     */
+    void dispatch(final AnalysisFrame frame) {
+        for (final Slot slot : mSlots) {
+            if (!slot.mIsBusy.compareAndSet(false, true)) {
+                slot.mDroppedFrames.incrementAndGet();
+                continue;
+            }
+            frame.retain();
+            try {
+                slot.mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            slot.mAnalyzer.analyze(frame);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        } finally {
+                            frame.release();
+                            slot.mIsBusy.set(false);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The analyzer was removed in the meantime
+                frame.release();
+                slot.mIsBusy.set(false);
+            }
+        }
+    }
+
+    private Slot find(FrameAnalyzer analyzer) {
+        for (Slot slot : mSlots) {
+            if (slot.mAnalyzer == analyzer) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private static final class Slot {
+        final FrameAnalyzer mAnalyzer;
+        final Executor mExecutor;
+        final ExecutorService mOwnedExecutor;
+        final AtomicBoolean mIsBusy = new AtomicBoolean();
+        final AtomicLong mDroppedFrames = new AtomicLong();
+
+        Slot(FrameAnalyzer analyzer, Executor executor, ExecutorService ownedExecutor) {
+            mAnalyzer = analyzer;
+            mExecutor = executor;
+            mOwnedExecutor = ownedExecutor;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.nyris.camera;
+
+/**
+ * FrameGeometry.java - Immutable description of the frames delivered by the camera preview.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class FrameGeometry {
+    private final int mWidth;
+    private final int mHeight;
+    private final int mFormat;
+    private final int mBufferSize;
+
+    /**
+     * @param width      The frame width, in pixels
+     * @param height     The frame height, in pixels
+     * @param format     The {@link android.graphics.ImageFormat} of the frame
+     * @param bufferSize The size of a frame, in bytes
+     */
+    FrameGeometry(int width, int height, int format, int bufferSize) {
+        mWidth = width;
+        mHeight = height;
+        mFormat = format;
+        mBufferSize = bufferSize;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    int getFormat() {
+        return mFormat;
+    }
+
+    int getBufferSize() {
+        return mBufferSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FrameGeometry)) {
+            return false;
+        }
+        FrameGeometry geometry = (FrameGeometry) o;
+        return mWidth == geometry.mWidth && mHeight == geometry.mHeight &&
+                mFormat == geometry.mFormat && mBufferSize == geometry.mBufferSize;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mWidth;
+        result = 31 * result + mHeight;
+        result = 31 * result + mFormat;
+        result = 31 * result + mBufferSize;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return mWidth + "x" + mHeight + "@" + mFormat;
+    }
+}
@@ -0,0 +1,135 @@
+package io.nyris.camera;
+
+/**
+ * FrameQualityGate.java - Cheap pre-filter that lets only sharp and steady frames through to the
+ * barcode scanner.
+ *
+ * The frame is sampled on a coarse grid. Sharpness is the variance of the 4-neighbour Laplacian
+ * at the grid points, blurred frames have few strong edges and score low. Motion is the mean
+ * absolute luma difference at the grid points since the previous frame.
+ *
+ * A gate keeps the samples of the previous frame, it is meant to be used by one thread.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class FrameQualityGate {
+    /**
+     * Number of grid points along each axis.
+     */
+    static final int GRID_SIZE = 32;
+
+    private final float mMinSharpness;
+    private final float mMaxMotion;
+
+    private final int[] mSamples = new int[GRID_SIZE * GRID_SIZE];
+    private final int[] mPreviousSamples = new int[GRID_SIZE * GRID_SIZE];
+    private final int[] mPreviousKey = new int[4];
+    private boolean mHasPrevious;
+
+    private float mSharpness;
+    private float mMotion;
+
+    /**
+     * @param minSharpness Frames with a lower sharpness are skipped, 0 to accept any sharpness
+     * @param maxMotion    Frames with more motion are skipped, {@link Float#MAX_VALUE} to accept
+     *                     any motion
+     */
+    FrameQualityGate(float minSharpness, float maxMotion) {
+        if (minSharpness < 0 || maxMotion < 0) {
+            throw new IllegalArgumentException("Thresholds must not be negative");
+        }
+        mMinSharpness = minSharpness;
+        mMaxMotion = maxMotion;
+    }
+
+    float getMinSharpness() {
+        return mMinSharpness;
+    }
+
+    float getMaxMotion() {
+        return mMaxMotion;
+    }
+
+    /**
+     * @return The sharpness of the last measured frame.
+     */
+    float getSharpness() {
+        return mSharpness;
+    }
+
+    /**
+     * @return The motion of the last measured frame, 0 when there was no comparable frame before.
+     */
+    float getMotion() {
+        return mMotion;
+    }
+
+    /**
+     * Measures a frame and decides whether it is worth scanning.
+     *
+     * @param luma   The luma plane, {@code width} bytes per row
+     * @param width  The frame width, in pixels
+     * @param height The frame height, in pixels
+     * @param region The measured region as {@code {x, y, width, height}}
+     * @return {@code true} if the frame is sharp and steady enough to be scanned.
+     */
+    boolean accept(byte[] luma, int width, int height, int[] region) {
+        int x0 = Math.max(1, region[0]);
+        int y0 = Math.max(1, region[1]);
+        int x1 = Math.min(width - 1, region[0] + region[2]);
+        int y1 = Math.min(height - 1, region[1] + region[3]);
+        if (x1 <= x0 || y1 <= y0) {
+            // Too small to measure, let the scanner decide
+            mHasPrevious = false;
+            return true;
+        }
+        int columns = Math.min(GRID_SIZE, x1 - x0);
+        int rows = Math.min(GRID_SIZE, y1 - y0);
+        int count = columns * rows;
+
+        long sum = 0;
+        long sumOfSquares = 0;
+        int index = 0;
+        for (int row = 0; row < rows; row++) {
+            // Centre of each grid cell
+            int y = y0 + (2 * row + 1) * (y1 - y0) / (2 * rows);
+            int offset = y * width;
+            for (int column = 0; column < columns; column++) {
+                int x = x0 + (2 * column + 1) * (x1 - x0) / (2 * columns);
+                int center = luma[offset + x] & 0xFF;
+                int laplacian = 4 * center
+                        - (luma[offset + x - 1] & 0xFF)
+                        - (luma[offset + x + 1] & 0xFF)
+                        - (luma[offset + x - width] & 0xFF)
+                        - (luma[offset + x + width] & 0xFF);
+                sum += laplacian;
+                sumOfSquares += laplacian * laplacian;
+                mSamples[index++] = center;
+            }
+        }
+        float mean = sum / (float) count;
+        mSharpness = sumOfSquares / (float) count - mean * mean;
+
+        boolean isComparable = mHasPrevious && mPreviousKey[0] == x0 && mPreviousKey[1] == y0
+                && mPreviousKey[2] == x1 && mPreviousKey[3] == y1;
+        if (isComparable) {
+            long difference = 0;
+            for (int i = 0; i < count; i++) {
+                difference += Math.abs(mSamples[i] - mPreviousSamples[i]);
+            }
+            mMotion = difference / (float) count;
+        } else {
+            mMotion = 0f;
+        }
+        System.arraycopy(mSamples, 0, mPreviousSamples, 0, count);
+        mPreviousKey[0] = x0;
+        mPreviousKey[1] = y0;
+        mPreviousKey[2] = x1;
+        mPreviousKey[3] = y1;
+        mHasPrevious = true;
+
+        return mSharpness >= mMinSharpness && mMotion <= mMaxMotion;
+    }
+}
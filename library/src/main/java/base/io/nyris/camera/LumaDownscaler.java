@@ -0,0 +1,114 @@
+package io.nyris.camera;
+
+/**
+ * LumaDownscaler.java - Shrinks luma frames by 2x2 box averaging until they fit an analysis
+ * resolution.
+ *
+ * The scaler owns its output buffer and reuses it from frame to frame, it is meant to be used by
+ * one thread.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class LumaDownscaler {
+    private byte[] mBuffer = new byte[0];
+    private int mWidth;
+    private int mHeight;
+    private int mScale;
+
+    /**
+     * Halves the frame as many times as needed for its longer side to fit {@code maxLongerSide}.
+     *
+     * @param luma          The luma plane, {@code width} bytes per row
+     * @param maxLongerSide The maximum length of the longer side, 0 to keep the frame as is
+     * @return {@code luma} itself when no scaling is needed, the scaled frame otherwise. The
+     * scaled frame is overwritten by the next call. Its size is given by {@link #getWidth()} and
+     * {@link #getHeight()}.
+     */
+    byte[] downscale(byte[] luma, int width, int height, int maxLongerSide) {
+        byte[] frame = luma;
+        int scale = 1;
+        while (maxLongerSide > 0 && Math.max(width, height) > maxLongerSide
+                && width >= 2 && height >= 2) {
+            if (frame == luma) {
+                int size = (width / 2) * (height / 2);
+                if (mBuffer.length < size) {
+                    mBuffer = new byte[size];
+                }
+            }
+            halve(frame, width, height, mBuffer);
+            frame = mBuffer;
+            width /= 2;
+            height /= 2;
+            scale *= 2;
+        }
+        mWidth = width;
+        mHeight = height;
+        mScale = scale;
+        return frame;
+    }
+
+    /**
+     * @return The width of the last frame returned by {@link #downscale}.
+     */
+    int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * @return The height of the last frame returned by {@link #downscale}.
+     */
+    int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return How many source pixels one pixel of the last frame returned by {@link #downscale}
+     * spans on each side, 1 when it was not scaled.
+     */
+    int getScale() {
+        return mScale;
+    }
+
+    /**
+     * Maps a box of the last frame returned by {@link #downscale} back to the source frame.
+     *
+     * @param bounds The box as {@code {x, y, width, height}}
+     * @return {@code bounds} itself when the frame was not scaled, a scaled copy otherwise.
+     */
+    int[] toSourceBounds(int[] bounds) {
+        if (mScale == 1) {
+            return bounds;
+        }
+        int[] source = new int[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            source[i] = bounds[i] * mScale;
+        }
+        return source;
+    }
+
+    /**
+     * Averages each 2x2 block of {@code source} into one pixel of {@code output}. A last odd row or
+     * column is dropped. Can scale in place: every pixel is written after the pixels it is made
+     * of were read.
+     *
+     * @param output At least {@code (width / 2) * (height / 2)} bytes, rows are packed
+     */
+    static void halve(byte[] source, int width, int height, byte[] output) {
+        int outputWidth = width / 2;
+        int outputHeight = height / 2;
+        int outputIndex = 0;
+        for (int y = 0; y < outputHeight; y++) {
+            int top = 2 * y * width;
+            int bottom = top + width;
+            for (int x = 0; x < outputWidth; x++) {
+                int sum = (source[top] & 0xFF) + (source[top + 1] & 0xFF)
+                        + (source[bottom] & 0xFF) + (source[bottom + 1] & 0xFF);
+                output[outputIndex++] = (byte) ((sum + 2) >> 2);
+                top += 2;
+                bottom += 2;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package io.nyris.camera;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LumaExtractor.java - Extracts a tightly packed Y800 image out of a (possibly padded) luma plane.
+ *
+ * Camera2 planes may have a row stride larger than the width and, on some devices, a pixel stride
+ * larger than one. The extracted image is written into a buffer that is reused as long as the
+ * frame size does not change.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class LumaExtractor {
+    private byte[] mBuffer = new byte[0];
+
+    /**
+     * Gives the luma of a frame as packed Y800. The backing array of the luma plane is returned
+     * as is when the plane is already packed (Camera API 1 frames), no copy is made.
+     *
+     * @return The packed luma, at least {@code width * height} bytes. Only valid until the next
+     * call and as long as the frame is held.
+     */
+    byte[] lumaOf(AnalysisFrame frame) {
+        ByteBuffer plane = frame.getPlane(AnalysisFrame.PLANE_Y);
+        int width = frame.getWidth();
+        int rowStride = frame.getRowStride(AnalysisFrame.PLANE_Y);
+        int pixelStride = frame.getPixelStride(AnalysisFrame.PLANE_Y);
+        if (plane.hasArray() && plane.arrayOffset() == 0 && plane.position() == 0
+                && rowStride == width && pixelStride == 1) {
+            return plane.array();
+        }
+        return extract(plane, width, frame.getHeight(), rowStride, pixelStride);
+    }
+
+    /**
+     * Extracts the luma plane into the reusable buffer.
+     *
+     * @param plane       The plane data, starting at its current position
+     * @param width       The frame width, in pixels
+     * @param height      The frame height, in pixels
+     * @param rowStride   The distance between the start of two rows, in bytes
+     * @param pixelStride The distance between two pixels of a row, in bytes
+     * @return The packed luma, {@code width * height} bytes. Only valid until the next call.
+     */
+    byte[] extract(ByteBuffer plane, int width, int height, int rowStride, int pixelStride) {
+        final int frameSize = width * height;
+        if (mBuffer.length != frameSize) {
+            mBuffer = new byte[frameSize];
+        }
+        extract(plane, width, height, rowStride, pixelStride, mBuffer);
+        return mBuffer;
+    }
+
+    /**
+     * Extracts the luma plane into {@code output}. The position of {@code plane} is left unchanged.
+     *
+     * @throws IllegalArgumentException if the plane or the output is too small for the geometry.
+     */
+    static void extract(ByteBuffer plane, int width, int height, int rowStride, int pixelStride,
+                        byte[] output) {
+        if (width <= 0 || height <= 0 || pixelStride <= 0 || rowStride < width * pixelStride) {
+            throw new IllegalArgumentException("Invalid plane geometry: " + width + "x" + height +
+                    ", rowStride " + rowStride + ", pixelStride " + pixelStride);
+        }
+        final int frameSize = width * height;
+        // The last row is not necessarily padded
+        final int planeSize = (height - 1) * rowStride + (width - 1) * pixelStride + 1;
+        if (plane.remaining() < planeSize || output.length < frameSize) {
+            throw new IllegalArgumentException("Plane of " + plane.remaining() +
+                    " bytes is too small for " + width + "x" + height);
+        }
+
+        final int start = plane.position();
+        if (pixelStride == 1 && rowStride == width) {
+            // Already packed
+            plane.get(output, 0, frameSize);
+        } else if (pixelStride == 1) {
+            for (int row = 0; row < height; row++) {
+                plane.position(start + row * rowStride);
+                plane.get(output, row * width, width);
+            }
+        } else {
+            int offset = 0;
+            for (int row = 0; row < height; row++) {
+                int index = start + row * rowStride;
+                for (int col = 0; col < width; col++) {
+                    output[offset++] = plane.get(index);
+                    index += pixelStride;
+                }
+            }
+        }
+        plane.position(start);
+    }
+}
@@ -0,0 +1,49 @@
+package io.nyris.camera;
+
+/**
+ * ScanBands.java - Splits a scan region into overlapping horizontal bands that can be scanned
+ * independently.
+ *
+ * Neighbouring bands share {@code overlap} rows on each side, so a symbol lying across a band
+ * boundary still fits entirely in one of the bands as long as it is not taller than the overlap.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class ScanBands {
+    /**
+     * Bands are never made thinner than this, in rows, before the overlap is added.
+     */
+    static final int MIN_BAND_HEIGHT = 32;
+
+    private ScanBands() {
+    }
+
+    /**
+     * @param region  The region to split as {@code {x, y, width, height}}
+     * @param count   The wanted number of bands, fewer bands are returned for short regions
+     * @param overlap The number of rows each band extends into its neighbours
+     * @return The bands as {@code {x, y, width, height}}, from top to bottom.
+     */
+    static int[][] split(int[] region, int count, int overlap) {
+        if (region.length != 4 || count < 1 || overlap < 0) {
+            throw new IllegalArgumentException("Invalid band split: count=" + count
+                    + ", overlap=" + overlap);
+        }
+        int x = region[0];
+        int top = region[1];
+        int width = region[2];
+        int height = region[3];
+        int bandCount = Math.max(1, Math.min(count, height / MIN_BAND_HEIGHT));
+        int[][] bands = new int[bandCount][];
+        for (int i = 0; i < bandCount; i++) {
+            int bandTop = top + height * i / bandCount;
+            int bandBottom = top + height * (i + 1) / bandCount;
+            bandTop = Math.max(top, bandTop - overlap);
+            bandBottom = Math.min(top + height, bandBottom + overlap);
+            bands[i] = new int[]{x, bandTop, width, bandBottom - bandTop};
+        }
+        return bands;
+    }
+}
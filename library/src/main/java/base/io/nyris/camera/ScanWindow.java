@@ -0,0 +1,139 @@
+package io.nyris.camera;
+
+/**
+ * ScanWindow.java - Immutable region of the preview that frame analysis is restricted to.
+ *
+ * The region is kept as fractions of the preview view, so it survives preview size changes. It is
+ * mapped into frame coordinates using the clockwise rotation that brings the frame upright on
+ * screen.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class ScanWindow {
+    private final float mLeft;
+    private final float mTop;
+    private final float mRight;
+    private final float mBottom;
+
+    /**
+     * @param left   The left edge, as a fraction of the preview width
+     * @param top    The top edge, as a fraction of the preview height
+     * @param right  The right edge, as a fraction of the preview width
+     * @param bottom The bottom edge, as a fraction of the preview height
+     */
+    ScanWindow(float left, float top, float right, float bottom) {
+        mLeft = clamp(Math.min(left, right));
+        mTop = clamp(Math.min(top, bottom));
+        mRight = clamp(Math.max(left, right));
+        mBottom = clamp(Math.max(top, bottom));
+    }
+
+    /**
+     * Creates a window from a rectangle given in the coordinates of the preview view.
+     */
+    static ScanWindow fromView(int left, int top, int right, int bottom,
+                               int viewWidth, int viewHeight) {
+        return new ScanWindow(left / (float) viewWidth, top / (float) viewHeight,
+                right / (float) viewWidth, bottom / (float) viewHeight);
+    }
+
+    float getLeft() {
+        return mLeft;
+    }
+
+    float getTop() {
+        return mTop;
+    }
+
+    float getRight() {
+        return mRight;
+    }
+
+    float getBottom() {
+        return mBottom;
+    }
+
+    boolean isEmpty() {
+        return mLeft >= mRight || mTop >= mBottom;
+    }
+
+    /**
+     * Maps the window into frame coordinates.
+     *
+     * @param frameWidth  The frame width, in pixels
+     * @param frameHeight The frame height, in pixels
+     * @param rotation    Clockwise rotation in degrees (0, 90, 180, 270) that displays the frame
+     *                    upright
+     * @param mirrored    Whether the preview is mirrored horizontally (front facing camera)
+     * @return The crop as {@code {x, y, width, height}} in frame pixels.
+     */
+    int[] toFrameCrop(int frameWidth, int frameHeight, int rotation, boolean mirrored) {
+        float left = mirrored ? 1f - mRight : mLeft;
+        float right = mirrored ? 1f - mLeft : mRight;
+        float x0, y0, x1, y1;
+        switch ((rotation % 360 + 360) % 360) {
+            case 90:
+                x0 = mTop;
+                x1 = mBottom;
+                y0 = 1f - right;
+                y1 = 1f - left;
+                break;
+            case 180:
+                x0 = 1f - right;
+                x1 = 1f - left;
+                y0 = 1f - mBottom;
+                y1 = 1f - mTop;
+                break;
+            case 270:
+                x0 = 1f - mBottom;
+                x1 = 1f - mTop;
+                y0 = left;
+                y1 = right;
+                break;
+            default:
+                x0 = left;
+                x1 = right;
+                y0 = mTop;
+                y1 = mBottom;
+                break;
+        }
+        int x = Math.round(x0 * frameWidth);
+        int y = Math.round(y0 * frameHeight);
+        int width = Math.min(frameWidth, Math.round(x1 * frameWidth)) - x;
+        int height = Math.min(frameHeight, Math.round(y1 * frameHeight)) - y;
+        return new int[]{x, y, Math.max(0, width), Math.max(0, height)};
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ScanWindow)) {
+            return false;
+        }
+        ScanWindow window = (ScanWindow) o;
+        return mLeft == window.mLeft && mTop == window.mTop &&
+                mRight == window.mRight && mBottom == window.mBottom;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(mLeft);
+        result = 31 * result + Float.floatToIntBits(mTop);
+        result = 31 * result + Float.floatToIntBits(mRight);
+        result = 31 * result + Float.floatToIntBits(mBottom);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + mLeft + ", " + mTop + " - " + mRight + ", " + mBottom + "]";
+    }
+
+    private static float clamp(float value) {
+        return Math.max(0f, Math.min(1f, value));
+    }
+}
@@ -71,6 +71,27 @@ class SizeMap {
         return mRatios.get(ratio);
     }
 
+    /**
+     * Finds the largest size of an aspect ratio whose longer side fits a limit.
+     *
+     * @param ratio         The aspect ratio
+     * @param maxLongerSide The maximum length of the longer side, in pixels
+     * @return The size, or {@code null} if no size of this ratio is small enough.
+     */
+    Size largestWithin(AspectRatio ratio, int maxLongerSide) {
+        SortedSet<Size> sizes = mRatios.get(ratio);
+        if (sizes == null) {
+            return null;
+        }
+        Size largest = null;
+        for (Size size : sizes) {
+            if (Math.max(size.getWidth(), size.getHeight()) <= maxLongerSide) {
+                largest = size;
+            }
+        }
+        return largest;
+    }
+
     void clear() {
         mRatios.clear();
     }
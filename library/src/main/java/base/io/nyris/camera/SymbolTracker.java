@@ -0,0 +1,76 @@
+package io.nyris.camera;
+
+import java.util.List;
+
+/**
+ * SymbolTracker.java - Remembers where symbols were last found in the frame and proposes a small
+ * window around them to scan first.
+ *
+ * The window is the union of the last symbol bounds, grown on every side by the larger side of
+ * that union: 1D symbols are often reported as thin lines along a scan line.
+ *
+ * A tracker is meant to be used by one thread.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class SymbolTracker {
+    /**
+     * The window is grown by at least this many pixels on every side.
+     */
+    static final int MIN_MARGIN = 16;
+
+    private int[] mBounds;
+    private int mFrameWidth;
+    private int mFrameHeight;
+
+    /**
+     * @param region The scan region as {@code {x, y, width, height}}
+     * @return The window to scan first as {@code {x, y, width, height}}, or {@code null} if there
+     * is no symbol to track in this region or the frame size changed.
+     */
+    int[] searchWindow(int[] region, int frameWidth, int frameHeight) {
+        if (mBounds == null || frameWidth != mFrameWidth || frameHeight != mFrameHeight) {
+            return null;
+        }
+        int margin = Math.max(MIN_MARGIN, Math.max(mBounds[2], mBounds[3]));
+        int left = Math.max(region[0], mBounds[0] - margin);
+        int top = Math.max(region[1], mBounds[1] - margin);
+        int right = Math.min(region[0] + region[2], mBounds[0] + mBounds[2] + margin);
+        int bottom = Math.min(region[1] + region[3], mBounds[1] + mBounds[3] + margin);
+        if (right <= left || bottom <= top) {
+            return null;
+        }
+        return new int[]{left, top, right - left, bottom - top};
+    }
+
+    /**
+     * Remembers the bounds of the symbols found in a frame, forgets them when nothing was found.
+     *
+     * @param bounds The symbol bounds as {@code {x, y, width, height}} in frame pixels
+     */
+    void update(List<int[]> bounds, int frameWidth, int frameHeight) {
+        if (bounds.isEmpty()) {
+            reset();
+            return;
+        }
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        for (int[] symbol : bounds) {
+            left = Math.min(left, symbol[0]);
+            top = Math.min(top, symbol[1]);
+            right = Math.max(right, symbol[0] + symbol[2]);
+            bottom = Math.max(bottom, symbol[1] + symbol[3]);
+        }
+        mBounds = new int[]{left, top, right - left, bottom - top};
+        mFrameWidth = frameWidth;
+        mFrameHeight = frameHeight;
+    }
+
+    void reset() {
+        mBounds = null;
+    }
+}
@@ -0,0 +1,119 @@
+package io.nyris.camera;
+
+/**
+ * Yuv420Converter.java - Java implementation of the YUV 4:2:0 to ARGB 8888 conversion, used when
+ * the native ImageUtils library is not available.
+ *
+ * Uses the same fixed point arithmetic as yuv2rgb.cpp, both produce identical pixels.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+final class Yuv420Converter {
+    // Channels are clamped to 18 bits before they are shifted down to 8 bits
+    private static final int MAX_CHANNEL_VALUE = 262143;
+
+    private Yuv420Converter() {
+    }
+
+    /**
+     * Converts YUV 4:2:0 planes with any row and pixel stride to ARGB 8888.
+     *
+     * @param output   {@code width * height} pixels, or {@code (width / 2) * (height / 2)} pixels
+     *                 at half size
+     * @param halfSize Averages each 2x2 luma block into one output pixel
+     */
+    static void convert(byte[] y, byte[] u, byte[] v, int[] output, int width, int height,
+                        int yRowStride, int uvRowStride, int uvPixelStride, boolean halfSize) {
+        if (halfSize) {
+            convertHalfSize(y, u, v, output, width, height, yRowStride, uvRowStride, uvPixelStride);
+        } else {
+            convertFullSize(y, u, v, output, width, height, yRowStride, uvRowStride, uvPixelStride);
+        }
+    }
+
+    /**
+     * Checks that the planes and the output hold the whole frame, so that the native conversion
+     * never reads or writes out of bounds.
+     *
+     * @throws IllegalArgumentException when a buffer is too small
+     */
+    static void checkBuffers(byte[] y, byte[] u, byte[] v, int[] output, int width, int height,
+                             int yRowStride, int uvRowStride, int uvPixelStride, boolean halfSize) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid frame size " + width + "x" + height);
+        }
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        if (yRowStride < width || uvPixelStride < 1 ||
+                uvRowStride < (chromaWidth - 1) * uvPixelStride + 1) {
+            throw new IllegalArgumentException("Invalid strides " + yRowStride + ", " +
+                    uvRowStride + ", " + uvPixelStride + " for a width of " + width);
+        }
+        int uvLength = (chromaHeight - 1) * uvRowStride + (chromaWidth - 1) * uvPixelStride + 1;
+        if (y.length < (height - 1) * yRowStride + width ||
+                u.length < uvLength || v.length < uvLength) {
+            throw new IllegalArgumentException("The planes are too small for " +
+                    width + "x" + height);
+        }
+        int outputLength = halfSize ? (width / 2) * (height / 2) : width * height;
+        if (output.length < outputLength) {
+            throw new IllegalArgumentException("The output holds " + output.length +
+                    " pixels, " + outputLength + " are needed");
+        }
+    }
+
+    private static void convertFullSize(byte[] y, byte[] u, byte[] v, int[] output, int width,
+                                        int height, int yRowStride, int uvRowStride,
+                                        int uvPixelStride) {
+        for (int row = 0; row < height; row++) {
+            int yOffset = row * yRowStride;
+            int uvRowOffset = (row >> 1) * uvRowStride;
+            int outOffset = row * width;
+            for (int x = 0; x < width; x++) {
+                int uvOffset = uvRowOffset + (x >> 1) * uvPixelStride;
+                output[outOffset + x] = yuvToRgb(y[yOffset + x] & 0xff, u[uvOffset] & 0xff,
+                        v[uvOffset] & 0xff);
+            }
+        }
+    }
+
+    private static void convertHalfSize(byte[] y, byte[] u, byte[] v, int[] output, int width,
+                                        int height, int yRowStride, int uvRowStride,
+                                        int uvPixelStride) {
+        int outWidth = width / 2;
+        int outHeight = height / 2;
+        for (int row = 0; row < outHeight; row++) {
+            int top = 2 * row * yRowStride;
+            int bottom = top + yRowStride;
+            int uvRowOffset = row * uvRowStride;
+            int outOffset = row * outWidth;
+            for (int x = 0; x < outWidth; x++) {
+                int luma = ((y[top + 2 * x] & 0xff) + (y[top + 2 * x + 1] & 0xff) +
+                        (y[bottom + 2 * x] & 0xff) + (y[bottom + 2 * x + 1] & 0xff) + 2) >> 2;
+                int uvOffset = uvRowOffset + x * uvPixelStride;
+                output[outOffset + x] = yuvToRgb(luma, u[uvOffset] & 0xff, v[uvOffset] & 0xff);
+            }
+        }
+    }
+
+    /**
+     * BT.601 video range to RGB, in 10 bit fixed point.
+     */
+    static int yuvToRgb(int y, int u, int v) {
+        y = Math.max(0, y - 16);
+        u -= 128;
+        v -= 128;
+
+        int r = clamp(1192 * y + 1634 * v);
+        int g = clamp(1192 * y - 833 * v - 400 * u);
+        int b = clamp(1192 * y + 2066 * u);
+
+        return 0xff000000 | ((r >> 10) << 16) | ((g >> 10) << 8) | (b >> 10);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > MAX_CHANNEL_VALUE ? MAX_CHANNEL_VALUE : value);
+    }
+}
@@ -23,9 +23,11 @@ import android.arch.lifecycle.LifecycleObserver;
 import android.arch.lifecycle.OnLifecycleEvent;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
 import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.support.annotation.IntDef;
@@ -42,7 +44,15 @@ import android.widget.FrameLayout;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class BaseCameraView extends FrameLayout implements LifecycleObserver {
 
@@ -89,9 +99,54 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
 
     private boolean isSaveImage;
 
+    private boolean isLosslessOriginal;
+
     private int takenPictureWidth = 512;
 
     private int takenPictureHeight = 512;
+
+    private Rect mScanWindow;
+
+    private Set<BarcodeFormat> mBarcodeFormats = Collections.emptySet();
+
+    private ScanDensityPolicy mScanDensityPolicy;
+
+    private long mDeduplicationWindowMillis;
+
+    private int mDeduplicationMaxCodes;
+
+    private final List<IBarcodeListener> mBarcodeListeners = new ArrayList<>();
+
+    private final FrameAnalyzerDispatcher mFrameAnalyzers = new FrameAnalyzerDispatcher();
+
+    private final List<IBarcodesListener> mBarcodesListeners = new ArrayList<>();
+
+    private Executor mBarcodeDeliveryExecutor = BarcodeExecutors.CALLER_THREAD;
+
+    private final Executor mMainThreadExecutor = new MainThreadExecutor();
+
+    private final CaptureProcessor mCaptureProcessor = new CaptureProcessor(
+            newCaptureProcessingExecutor(), mMainThreadExecutor);
+
+    private int mScannerPoolSize = 1;
+
+    private float mMinSharpness;
+
+    private float mMaxMotion = Float.MAX_VALUE;
+
+    private boolean mIsQualityGateEnabled;
+
+    private boolean mIsBarcodeTrackingEnabled;
+
+    private int mAnalysisMaxSide;
+
+    private float mMaxAnalysisFps;
+
+    private float mIdleFps = 2f;
+
+    private long mIdleAfterMillis;
+
+    private float mWakeMotion = 8f;
     /**
      * Open a camera device and start showing camera preview. This is typically called from
      * {@link Activity#onResume()}.
@@ -244,6 +299,14 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
         }
     }
 
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (changed && !isInEditMode()) {
+            updateScanWindow();
+        }
+    }
+
     public Size getSurfaceMeasurement() {
         return new Size(mImpl.getView().getMeasuredWidth(), mImpl.getView().getMeasuredHeight());
     }
@@ -410,6 +473,27 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
         isSaveImage = saveImage;
     }
 
+    /**
+     * Get whether the original picture is delivered losslessly
+     *
+     * @return The lossless original value
+     */
+    public boolean isLosslessOriginal() {
+        return isLosslessOriginal;
+    }
+
+    /**
+     * Set lossless original to true to deliver the camera JPEG at its capture resolution to
+     * {@link Callback#onPictureTakenOriginal(BaseCameraView, byte[])}. Its pixels are left
+     * untouched and its EXIF orientation tag is normalized instead of rotating and re-encoding
+     * the picture. Only the taken picture is rotated.
+     *
+     * @param losslessOriginal the boolean value
+     */
+    public void setLosslessOriginal(boolean losslessOriginal) {
+        isLosslessOriginal = losslessOriginal;
+    }
+
     /**
      * Get taken picture width
      *
@@ -478,25 +562,325 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
      * Enable Barcode recognition
      */
     public void enableBarcode(boolean isEnabled) {
-        if (!(mImpl instanceof IBarcodeCamera)) {
-            final PreviewImpl preview = createPreviewImpl(getContext(), false);
-            CameraViewImpl cameraViewImpl;
-
-            if (Build.VERSION.SDK_INT < 21) {
-                cameraViewImpl = new Camera1ZBar(mCallbacks, preview);
-            } else if (Build.VERSION.SDK_INT < 23) {
-                cameraViewImpl = new Camera2ZBar(mCallbacks, preview, getContext());
-            } else {
-                cameraViewImpl = new Camera2ZBarApi23(mCallbacks, preview, getContext());
-            }
+        switchToFrameCamera();
+        mImpl.enableBarcode(isEnabled);
+    }
 
-            cameraViewImpl.setFlash(mImpl.getFlash());
-            cameraViewImpl.setAutoFocus(mImpl.getAutoFocus());
-            cameraViewImpl.setAspectRatio(mImpl.getAspectRatio());
-            cameraViewImpl.setFacing(mImpl.getFacing());
-            mImpl = cameraViewImpl;
+    /**
+     * Replaces the camera implementation by one delivering preview frames, the barcode cameras.
+     *
+     * @return {@code true} if the implementation was replaced.
+     */
+    private boolean switchToFrameCamera() {
+        if (mImpl instanceof IBarcodeCamera) {
+            return false;
         }
-        mImpl.enableBarcode(isEnabled);
+        final PreviewImpl preview = createPreviewImpl(getContext(), false);
+        CameraViewImpl cameraViewImpl;
+
+        if (Build.VERSION.SDK_INT < 21) {
+            cameraViewImpl = new Camera1ZBar(mCallbacks, preview);
+        } else if (Build.VERSION.SDK_INT < 23) {
+            cameraViewImpl = new Camera2ZBar(mCallbacks, preview, getContext());
+        } else {
+            cameraViewImpl = new Camera2ZBarApi23(mCallbacks, preview, getContext());
+        }
+
+        cameraViewImpl.setFlash(mImpl.getFlash());
+        cameraViewImpl.setAutoFocus(mImpl.getAutoFocus());
+        cameraViewImpl.setAspectRatio(mImpl.getAspectRatio());
+        cameraViewImpl.setFacing(mImpl.getFacing());
+        mImpl = cameraViewImpl;
+        updateScanWindow();
+        applyBarcodeSettings((IBarcodeCamera) mImpl);
+        for (IBarcodeListener barcodeListener : mBarcodeListeners) {
+            mImpl.addBarcodeListener(barcodeListener);
+        }
+        for (IBarcodesListener barcodesListener : mBarcodesListeners) {
+            mImpl.addBarcodesListener(barcodesListener);
+        }
+        mImpl.setFrameAnalyzerDispatcher(mFrameAnalyzers.hasAnalyzers() ? mFrameAnalyzers : null);
+        return true;
+    }
+
+    /**
+     * Add an analyzer receiving the preview frames, e.g. a custom detector. All analyzers share
+     * the preview stream used for barcode decoding, each on a thread of its own: a busy analyzer
+     * misses frames without slowing down the others. Like {@link #enableBarcode(boolean)}, should
+     * be called before the camera is started.
+     *
+     * @param analyzer The analyzer
+     */
+    public void addFrameAnalyzer(@NonNull FrameAnalyzer analyzer) {
+        mFrameAnalyzers.addAnalyzer(analyzer);
+        if (switchToFrameCamera()) {
+            // The frame camera decodes barcodes by default, only frames were asked for
+            mImpl.enableBarcode(false);
+        }
+        mImpl.setFrameAnalyzerDispatcher(mFrameAnalyzers);
+    }
+
+    /**
+     * Remove an analyzer added with {@link #addFrameAnalyzer(FrameAnalyzer)}. The preview
+     * stream stops once neither barcodes nor frames are consumed anymore.
+     *
+     * @param analyzer The analyzer
+     */
+    public void removeFrameAnalyzer(@NonNull FrameAnalyzer analyzer) {
+        mFrameAnalyzers.removeAnalyzer(analyzer);
+        mImpl.setFrameAnalyzerDispatcher(mFrameAnalyzers.hasAnalyzers() ? mFrameAnalyzers : null);
+    }
+
+    /**
+     * Get the number of frames an analyzer missed because it was still busy with a previous one
+     *
+     * @param analyzer The analyzer
+     * @return The number of missed frames, -1 if the analyzer was not added
+     */
+    public long getFrameAnalyzerDroppedFrames(@NonNull FrameAnalyzer analyzer) {
+        return mFrameAnalyzers.getDroppedFrames(analyzer);
+    }
+
+    /**
+     * Restrict barcode decoding to the given formats. Every disabled format is one less decoder
+     * ZBar runs on each frame.
+     *
+     * @param formats The formats to decode, an empty set decodes all formats
+     */
+    public void setBarcodeFormats(@NonNull Set<BarcodeFormat> formats) {
+        mBarcodeFormats = Collections.unmodifiableSet(new HashSet<>(formats));
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setBarcodeFormats(mBarcodeFormats);
+        }
+    }
+
+    /**
+     * Get the decoded barcode formats
+     *
+     * @return The formats to decode, empty if all formats are decoded
+     */
+    @NonNull
+    public Set<BarcodeFormat> getBarcodeFormats() {
+        return mBarcodeFormats;
+    }
+
+    /**
+     * Set the policy deciding the ZBar scan density of each frame. By default every frame is
+     * scanned with a density of 3. An {@link AdaptiveScanDensityPolicy} finds small or distant
+     * codes sooner, at the cost of more work per frame while nothing is in view.
+     *
+     * @param policy The policy, called on the decoding thread
+     */
+    public void setScanDensityPolicy(@NonNull ScanDensityPolicy policy) {
+        mScanDensityPolicy = policy;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setScanDensityPolicy(policy);
+        }
+    }
+
+    /**
+     * Emit each distinct barcode (same format and contents) at most once per time window, instead
+     * of once per frame it appears in. Disabled by default.
+     *
+     * @param windowMillis The window in milliseconds, 0 to disable deduplication
+     * @param maxCodes     The number of distinct barcodes remembered, the least recently seen
+     *                     barcode is forgotten first, at least 1 when deduplicating
+     */
+    public void setBarcodeDeduplication(long windowMillis, int maxCodes) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("The deduplication window must not be negative");
+        }
+        if (windowMillis > 0 && maxCodes < 1) {
+            throw new IllegalArgumentException("At least one barcode must be remembered");
+        }
+        mDeduplicationWindowMillis = windowMillis;
+        mDeduplicationMaxCodes = maxCodes;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setBarcodeDeduplication(windowMillis, maxCodes);
+        }
+    }
+
+    /**
+     * Split each frame into overlapping horizontal bands scanned in parallel by their own ZBar
+     * scanner. Worth it for high resolution previews on multi core devices, e.g.
+     * {@code Runtime.getRuntime().availableProcessors()}. The scan time of each band is reported
+     * in {@link BarcodeStats#getBandScanMicros()}.
+     *
+     * @param size The number of scanners, 1 (the default) scans frames on the decoding thread only
+     */
+    public void setBarcodeScannerPoolSize(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The scanner pool size must be at least 1");
+        }
+        mScannerPoolSize = size;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setScannerPoolSize(size);
+        }
+    }
+
+    /**
+     * Skip blurred or moving frames before they reach the barcode scanner. Sharpness and motion
+     * are measured on a coarse grid of the scan window, skipped frames are counted in
+     * {@link BarcodeStats#getFramesSkipped()}.
+     *
+     * @param minSharpness The minimum variance of the luma Laplacian, e.g. 100. Blurred frames
+     *                     score close to 0, 0 accepts any sharpness
+     * @param maxMotion    The maximum mean luma change since the previous frame (0 to 255), e.g.
+     *                     12. {@link Float#MAX_VALUE} accepts any motion
+     */
+    public void setFrameQualityGate(float minSharpness, float maxMotion) {
+        if (minSharpness < 0 || maxMotion < 0) {
+            throw new IllegalArgumentException("Thresholds must not be negative");
+        }
+        mMinSharpness = minSharpness;
+        mMaxMotion = maxMotion;
+        mIsQualityGateEnabled = true;
+        updateFrameQualityGate();
+    }
+
+    /**
+     * Scan every frame again, see {@link #setFrameQualityGate(float, float)}.
+     */
+    public void disableFrameQualityGate() {
+        mIsQualityGateEnabled = false;
+        updateFrameQualityGate();
+    }
+
+    private void updateFrameQualityGate() {
+        mImpl.setFrameQualityGate(mIsQualityGateEnabled
+                ? new FrameQualityGate(mMinSharpness, mMaxMotion) : null);
+    }
+
+    /**
+     * Enable the tracking mode: once a barcode is found, the next frames are first scanned only
+     * around it, the whole scan window is scanned again when it is not found there. Makes
+     * continuously verifying that a label stays in view much cheaper. Disabled by default.
+     *
+     * @param isEnabled {@code true} to enable the tracking mode
+     */
+    public void setBarcodeTracking(boolean isEnabled) {
+        mIsBarcodeTrackingEnabled = isEnabled;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setBarcodeTracking(isEnabled);
+        }
+    }
+
+    /**
+     * Decode barcodes from frames smaller than the preview, the preview keeps its resolution. 1D
+     * codes decode fine at 640 pixels, scanning fewer pixels cuts decoding time and memory
+     * bandwidth. With Camera API 2 the barcode stream gets its own size, taking effect the next
+     * time the preview starts. With Camera API 1 the frames are halved before decoding.
+     *
+     * @param maxLongerSide The maximum longer side of the analysed frames in pixels, e.g. 640. 0
+     *                      (the default) analyses frames at the preview size
+     */
+    public void setBarcodeAnalysisResolution(int maxLongerSide) {
+        if (maxLongerSide < 0) {
+            throw new IllegalArgumentException("The analysis resolution must not be negative");
+        }
+        mAnalysisMaxSide = maxLongerSide;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setAnalysisResolution(maxLongerSide);
+        }
+    }
+
+    /**
+     * Cap the number of frames analysed for barcodes per second, e.g. 10 to save battery. Frames
+     * above the cap are dropped evenly, they still count as dropped in {@link BarcodeStats}.
+     *
+     * @param maxFps The maximum analysis frame rate, 0 (the default) analyses as many frames as
+     *               the decoder keeps up with
+     */
+    public void setMaxAnalysisFps(float maxFps) {
+        if (maxFps < 0) {
+            throw new IllegalArgumentException("The frame rate cap must not be negative");
+        }
+        mMaxAnalysisFps = maxFps;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setMaxAnalysisFps(maxFps);
+        }
+    }
+
+    /**
+     * Drop the barcode analysis frame rate while nothing happens in front of the camera, e.g. to
+     * 2 fps after 30 s without detection nor motion. A detection or a moving scene brings the
+     * rate back to {@link #setMaxAnalysisFps(float)} at once. The time spent in each state and the
+     * effective analysis frame rate are reported in {@link BarcodeStats}.
+     *
+     * @param idleFps         The analysis frame rate while idle, e.g. 2
+     * @param idleAfterMillis The time without detection nor motion before going idle, e.g. 30000.
+     *                        0 (the default) never goes idle
+     * @param wakeMotion      The mean luma change between two analysed frames (0 to 255) that
+     *                        counts as motion, e.g. 8
+     */
+    public void setBarcodeIdleMode(float idleFps, long idleAfterMillis, float wakeMotion) {
+        if (idleFps <= 0 || idleAfterMillis < 0 || wakeMotion < 0) {
+            throw new IllegalArgumentException("Invalid idle mode");
+        }
+        mIdleFps = idleFps;
+        mIdleAfterMillis = idleAfterMillis;
+        mWakeMotion = wakeMotion;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setIdleDutyCycle(idleFps, idleAfterMillis, wakeMotion);
+        }
+    }
+
+    /**
+     * Hands the barcode settings of this view to a newly created barcode camera.
+     */
+    private void applyBarcodeSettings(IBarcodeCamera barcodeCamera) {
+        barcodeCamera.setBarcodeFormats(mBarcodeFormats);
+        if (mScanDensityPolicy != null) {
+            barcodeCamera.setScanDensityPolicy(mScanDensityPolicy);
+        }
+        barcodeCamera.setBarcodeDeduplication(mDeduplicationWindowMillis, mDeduplicationMaxCodes);
+        barcodeCamera.setBarcodeDeliveryExecutor(mBarcodeDeliveryExecutor);
+        barcodeCamera.setScannerPoolSize(mScannerPoolSize);
+        barcodeCamera.setBarcodeTracking(mIsBarcodeTrackingEnabled);
+        barcodeCamera.setAnalysisResolution(mAnalysisMaxSide);
+        barcodeCamera.setMaxAnalysisFps(mMaxAnalysisFps);
+        barcodeCamera.setIdleDutyCycle(mIdleFps, mIdleAfterMillis, mWakeMotion);
+        updateFrameQualityGate();
+    }
+
+    /**
+     * Restrict barcode scanning to a region of the preview. Scanning a smaller region makes every
+     * frame cheaper to decode.
+     *
+     * @param scanWindow The region in the coordinates of this view, {@code null} to scan the whole
+     *                   frame
+     */
+    public void setScanWindow(@Nullable Rect scanWindow) {
+        mScanWindow = scanWindow == null ? null : new Rect(scanWindow);
+        updateScanWindow();
+    }
+
+    /**
+     * Get the barcode scan window
+     *
+     * @return The region in the coordinates of this view, {@code null} if the whole frame is scanned
+     */
+    @Nullable
+    public Rect getScanWindow() {
+        return mScanWindow == null ? null : new Rect(mScanWindow);
+    }
+
+    /**
+     * Maps {@link #mScanWindow} relative to the preview view and hands it to the camera.
+     */
+    private void updateScanWindow() {
+        if (mImpl == null) {
+            return;
+        }
+        View preview = mImpl.getView();
+        if (mScanWindow == null || preview.getWidth() == 0 || preview.getHeight() == 0) {
+            mImpl.setScanWindow(null);
+            return;
+        }
+        mImpl.setScanWindow(ScanWindow.fromView(
+                mScanWindow.left - preview.getLeft(), mScanWindow.top - preview.getTop(),
+                mScanWindow.right - preview.getLeft(), mScanWindow.bottom - preview.getTop(),
+                preview.getWidth(), preview.getHeight()));
     }
 
     /**
@@ -546,9 +930,99 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
      * @param barcodeListener the barcode listener
      */
     public void addBarcodeListener(IBarcodeListener barcodeListener) {
+        if (!mBarcodeListeners.contains(barcodeListener)) {
+            mBarcodeListeners.add(barcodeListener);
+        }
         mImpl.addBarcodeListener(barcodeListener);
     }
 
+    /**
+     * Remove barcode listener. Once no listener is left, decoded barcodes are no longer dispatched.
+     *
+     * @param barcodeListener the barcode listener
+     */
+    public void removeBarcodeListener(IBarcodeListener barcodeListener) {
+        mBarcodeListeners.remove(barcodeListener);
+        mImpl.removeBarcodeListener(barcodeListener);
+    }
+
+    /**
+     * Add a listener receiving every barcode decoded in a frame at once
+     *
+     * @param barcodesListener the barcodes listener
+     */
+    public void addBarcodesListener(IBarcodesListener barcodesListener) {
+        if (!mBarcodesListeners.contains(barcodesListener)) {
+            mBarcodesListeners.add(barcodesListener);
+        }
+        mImpl.addBarcodesListener(barcodesListener);
+    }
+
+    /**
+     * Remove a listener added with {@link #addBarcodesListener(IBarcodesListener)}
+     *
+     * @param barcodesListener the barcodes listener
+     */
+    public void removeBarcodesListener(IBarcodesListener barcodesListener) {
+        mBarcodesListeners.remove(barcodesListener);
+        mImpl.removeBarcodesListener(barcodesListener);
+    }
+
+    /**
+     * Set the executor the barcode listeners are invoked on. By default listeners are invoked on
+     * the decoding thread, {@link BarcodeExecutors#MAIN_THREAD} or a dedicated dispatcher from
+     * {@link BarcodeExecutors#newDispatcher(String)} keep slow listeners from delaying the next
+     * decode.
+     *
+     * @param executor The delivery executor
+     */
+    public void setBarcodeDeliveryExecutor(@NonNull Executor executor) {
+        mBarcodeDeliveryExecutor = executor;
+        if (mImpl instanceof IBarcodeCamera) {
+            ((IBarcodeCamera) mImpl).setBarcodeDeliveryExecutor(executor);
+        }
+    }
+
+    /**
+     * Get the barcode decoding counters
+     *
+     * @return The current {@link BarcodeStats}. Can be {@code null} if barcode mode is not used.
+     */
+    @Nullable
+    public BarcodeStats getBarcodeStats() {
+        return mImpl.getBarcodeStats();
+    }
+
+    /**
+     * Set the executor {@link Callback#onPictureTaken(BaseCameraView, byte[])} and
+     * {@link Callback#onPictureTakenOriginal(BaseCameraView, byte[])} are invoked on. Pictures are
+     * processed in the background and delivered in capture order, on the main thread by default.
+     * The executor must run its tasks one at a time, in order.
+     *
+     * @param executor The delivery executor
+     */
+    public void setCaptureDeliveryExecutor(@NonNull Executor executor) {
+        mCaptureProcessor.setDeliveryExecutor(executor);
+    }
+
+    /**
+     * Get the number of taken pictures that are still being processed or waiting to be delivered
+     *
+     * @return The current capture queue depth
+     */
+    public int getCaptureQueueDepth() {
+        return mCaptureProcessor.getQueueDepth();
+    }
+
+    /**
+     * Get the highest capture queue depth since the view was created
+     *
+     * @return The maximum of {@link #getCaptureQueueDepth()}
+     */
+    public int getMaxCaptureQueueDepth() {
+        return mCaptureProcessor.getMaxQueueDepth();
+    }
+
     /**
      * Take a picture. The result will be returned to
      * {@link Callback#onPictureTaken(BaseCameraView, byte[])}.
@@ -588,6 +1062,29 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
     public @interface Flash {
     }
 
+    /**
+     * Single background thread for the capture processing, stopped while no picture is pending.
+     */
+    private static Executor newCaptureProcessingExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), runnable -> {
+            Thread thread = new Thread(runnable, "captureProcessingThread");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mHandler.post(command);
+        }
+    }
+
     protected static class SavedState extends BaseSavedState {
         static final Parcelable.Creator<SavedState> CREATOR
                 = ParcelableCompat.newCreator(new ParcelableCompatCreatorCallbacks<SavedState>() {
@@ -636,6 +1133,7 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
     protected class CallbackBridge implements CameraViewImpl.Callback {
         private final ArrayList<Callback> mCallbacks = new ArrayList<>();
         private boolean mRequestLayoutOnOpen;
+        private CapturePipeline mCapturePipeline;
 
         CallbackBridge() {
 
@@ -668,27 +1166,76 @@ public class BaseCameraView extends FrameLayout implements LifecycleObserver {
         }
 
         @Override
-        public void onPictureTaken(byte[] image) {
-            if (!isScreenShot) {
-                image = ImageUtils.Companion.rotateBitmap(image);
-                image = ImageUtils.Companion.resize(getContext(), image, getWidth(), getHeight());
+        public void onPictureTaken(final byte[] image) {
+            // The view state is read on the capture thread, the processing runs in the background
+            final boolean isScreenShot = BaseCameraView.this.isScreenShot;
+            final int viewWidth = getWidth();
+            final int viewHeight = getHeight();
+            final int targetWidth = takenPictureWidth;
+            final int targetHeight = takenPictureHeight;
+            final boolean isLosslessOriginal = BaseCameraView.this.isLosslessOriginal;
+            mCaptureProcessor.submit(new Callable<CapturePipeline.Result>() {
+                @Override
+                public CapturePipeline.Result call() {
+                    if (isScreenShot) {
+                        // A capture that completes after a screenshot was taken is delivered as is
+                        return new CapturePipeline.Result(image, ImageUtils.Companion.resize(
+                                getContext(), image, targetWidth, targetHeight));
+                    }
+                    return getCapturePipeline().process(image, viewWidth, viewHeight,
+                            targetWidth, targetHeight, isLosslessOriginal);
+                }
+            }, new PictureReceiver(isSaveImage));
+        }
+
+        @Override
+        public void onPictureTaken(final Bitmap bitmap) {
+            final int targetWidth = takenPictureWidth;
+            final int targetHeight = takenPictureHeight;
+            mCaptureProcessor.submit(new Callable<CapturePipeline.Result>() {
+                @Override
+                public CapturePipeline.Result call() {
+                    return getCapturePipeline().process(bitmap, targetWidth, targetHeight);
+                }
+            }, new PictureReceiver(isSaveImage));
+        }
+
+        /**
+         * Only called on the capture processing thread.
+         */
+        private CapturePipeline getCapturePipeline() {
+            if (mCapturePipeline == null) {
+                mCapturePipeline = new CapturePipeline(getContext());
             }
+            return mCapturePipeline;
+        }
 
-            if (isSaveImage) {
-                new SavingImageTask(getContext(), image).execute();
+        private class PictureReceiver implements CaptureProcessor.Receiver<CapturePipeline.Result> {
+            private final boolean mIsSaveImage;
+
+            PictureReceiver(boolean isSaveImage) {
+                mIsSaveImage = isSaveImage;
             }
 
-            byte[] transformedData = ImageUtils.Companion.resize(getContext(), image, takenPictureWidth, takenPictureHeight);
-            for (Callback callback : mCallbacks) {
-                callback.onPictureTakenOriginal(BaseCameraView.this, image);
-                callback.onPictureTaken(BaseCameraView.this, transformedData);
+            @Override
+            public void onResult(CapturePipeline.Result result) {
+                if (mIsSaveImage) {
+                    byte[] original = result.getOriginal();
+                    // AsyncTask must be started on the main thread, delivery may happen elsewhere
+                    mMainThreadExecutor.execute(() ->
+                            new SavingImageTask(getContext(), original).execute());
+                }
+
+                for (Callback callback : mCallbacks) {
+                    callback.onPictureTakenOriginal(BaseCameraView.this, result.getOriginal());
+                    callback.onPictureTaken(BaseCameraView.this, result.getResized());
+                }
             }
-        }
 
-        @Override
-        public void onPictureTaken(Bitmap bitmap) {
-            byte[] data = ImageUtils.Companion.compressAndTransformToBytes(bitmap);
-            onPictureTaken(data);
+            @Override
+            public void onError(Exception e) {
+                CallbackBridge.this.onError("Processing the picture failed: " + e.getMessage());
+            }
         }
 
         @Override
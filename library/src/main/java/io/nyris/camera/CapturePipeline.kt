@@ -0,0 +1,103 @@
+package io.nyris.camera
+
+import android.content.Context
+import android.graphics.Bitmap
+import java.io.ByteArrayOutputStream
+
+/**
+ * CapturePipeline.kt - Post-processing of a captured picture into its two outputs.
+ *
+ * The JPEG is decoded once, subsampled by the largest power of two that still covers the view
+ * size. Rotation and scaling to the view size are applied in a single draw, the taken picture
+ * size is drawn from that bitmap, and each output is encoded once.
+ *
+ * @author Sidali Mellouk
+ * Created by nyris GmbH
+ * Copyright © 2018 nyris GmbH. All rights reserved.
+ */
+internal class CapturePipeline(private val context: Context) {
+    companion object {
+        private const val JPEG_QUALITY = 90
+    }
+
+    /**
+     * The processed outputs of one picture.
+     */
+    class Result(
+            /**
+             * The upright picture at the view size, JPEG data. With a lossless original, the
+             * camera JPEG with its EXIF orientation normalized instead.
+             */
+            val original: ByteArray,
+            /**
+             * The upright picture at the taken picture size, JPEG data.
+             */
+            val resized: ByteArray)
+
+    /**
+     * Processes a captured JPEG.
+     *
+     * @param isLosslessOriginal Whether the original keeps the camera pixels and only carries
+     * the rotation in its EXIF orientation
+     *
+     * @throws IllegalArgumentException when the JPEG can not be decoded
+     */
+    fun process(jpeg: ByteArray, viewWidth: Int, viewHeight: Int,
+                targetWidth: Int, targetHeight: Int, isLosslessOriginal: Boolean): Result {
+        val bounds = ImageUtils.decodeBounds(jpeg)
+                ?: throw IllegalArgumentException("The picture can not be decoded")
+        val rotation = Exif.getOrientation(jpeg).toInt()
+        val rotated = CaptureGeometry.rotate(bounds.width, bounds.height, rotation)
+        if (isLosslessOriginal) {
+            val original = Exif.withOrientation(jpeg, rotation)
+            if (original != null) {
+                // Only the taken picture is decoded, straight at its size
+                val targetSize = ImageUtils.calculateImageSizePreservingAspectRatio(context,
+                        Size(targetWidth, targetHeight), rotated.width, rotated.height)
+                return Result(original, compress(decodeUpright(jpeg, targetSize, rotation)))
+            }
+        }
+        val viewSize = ImageUtils.calculateImageSizePreservingAspectRatio(context,
+                Size(viewWidth, viewHeight), rotated.width, rotated.height)
+
+        return encode(decodeUpright(jpeg, viewSize, rotation), targetWidth, targetHeight)
+    }
+
+    /**
+     * Processes a preview screenshot, already upright and at the view size.
+     */
+    fun process(screenshot: Bitmap, targetWidth: Int, targetHeight: Int): Result {
+        return encode(screenshot, targetWidth, targetHeight)
+    }
+
+    private fun encode(bitmap: Bitmap, targetWidth: Int, targetHeight: Int): Result {
+        val original = compress(bitmap)
+        val targetSize = ImageUtils.calculateImageSizePreservingAspectRatio(context,
+                Size(targetWidth, targetHeight), bitmap.width, bitmap.height)
+        val targetBitmap = ImageUtils.drawTransformed(bitmap, targetSize, 0)
+        val resized = compress(targetBitmap)
+        if (targetBitmap !== bitmap) {
+            targetBitmap.recycle()
+        }
+        return Result(original, resized)
+    }
+
+    /**
+     * Decodes only as many pixels as the size needs, then rotates and scales to exactly that size.
+     */
+    private fun decodeUpright(jpeg: ByteArray, size: Size, rotation: Int): Bitmap {
+        val source = ImageUtils.decodeSampled(jpeg, size.width, size.height, rotation)
+                ?: throw IllegalArgumentException("The picture can not be decoded")
+        val upright = ImageUtils.drawTransformed(source, size, rotation)
+        if (upright !== source) {
+            source.recycle()
+        }
+        return upright
+    }
+
+    private fun compress(bitmap: Bitmap): ByteArray {
+        val stream = ByteArrayOutputStream()
+        bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, stream)
+        return stream.toByteArray()
+    }
+}
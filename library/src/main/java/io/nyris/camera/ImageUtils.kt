@@ -3,7 +3,9 @@ package io.nyris.camera
 import android.content.Context
 import android.graphics.Bitmap
 import android.graphics.BitmapFactory
+import android.graphics.Canvas
 import android.graphics.Matrix
+import android.graphics.Paint
 import android.net.Uri
 import android.os.Environment
 import android.preference.PreferenceManager
@@ -21,12 +23,12 @@ import java.io.File
  */
 open class ImageUtils {
     companion object {
-        init {
-            try {
-                System.loadLibrary("ImageUtils")
-            } catch (e: UnsatisfiedLinkError) {
-                e.printStackTrace()
-            }
+        private val isNativeLoaded: Boolean = try {
+            System.loadLibrary("ImageUtils")
+            true
+        } catch (e: UnsatisfiedLinkError) {
+            e.printStackTrace()
+            false
         }
 
         fun rotateBitmap(image: ByteArray): ByteArray {
@@ -39,26 +41,84 @@ open class ImageUtils {
             return stream.toByteArray()
         }
 
-        fun resize(context: Context, data: ByteArray, width: Int, height: Int): ByteArray {
-            var bitmap = BitmapFactory.decodeByteArray(data, 0, data.size)
-            // Create and rotate the bitmap by rotationDegrees
-            val matrix = Matrix()
-            try {
-                val orientation = Exif.getOrientation(data)
-                matrix.postRotate(orientation)
-            } catch (e: Exception) {
-                e.printStackTrace()
-            }
+        /**
+         * Lossless alternative to [rotateBitmap]: the pixels are left untouched and the EXIF
+         * orientation tag is normalized to one of the four rotations, the tag being added when
+         * the image has no EXIF data.
+         *
+         * @return The image, patched in place when it already had an orientation tag. Falls back
+         * to [rotateBitmap] when the EXIF data can not be extended.
+         */
+        @JvmStatic
+        fun normalizeOrientation(image: ByteArray): ByteArray {
+            return Exif.withOrientation(image, Exif.getOrientation(image).toInt())
+                    ?: rotateBitmap(image)
+        }
 
-            bitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.width, bitmap.height, matrix, true)
+        fun resize(context: Context, data: ByteArray, width: Int, height: Int): ByteArray {
+            val orientation = Exif.getOrientation(data).toInt()
+            val bounds = decodeBounds(data) ?: throw IllegalArgumentException("The image can not be decoded")
+            val rotated = CaptureGeometry.rotate(bounds.width, bounds.height, orientation)
 
             // calculate the new image size preserving the aspect ratio
-            val proportionalScaleSize = calculateImageSizePreservingAspectRatio(context, Size(width, height), bitmap.width, bitmap.height)
-            val scaledImage = Bitmap.createScaledBitmap(bitmap, proportionalScaleSize.width, proportionalScaleSize.height, true)
+            val proportionalScaleSize = calculateImageSizePreservingAspectRatio(context, Size(width, height), rotated.width, rotated.height)
+            val bitmap = decodeSampled(data, proportionalScaleSize.width, proportionalScaleSize.height, orientation)
+                    ?: throw IllegalArgumentException("The image can not be decoded")
+            val scaledImage = drawTransformed(bitmap, proportionalScaleSize, orientation)
+            if (scaledImage !== bitmap) {
+                bitmap.recycle()
+            }
 
             return compressAndTransformToBytes(scaledImage)
         }
 
+        /**
+         * Reads the size of an encoded image without decoding its pixels.
+         *
+         * @return The encoded size, `null` when the data is not a supported image.
+         */
+        @JvmStatic
+        fun decodeBounds(data: ByteArray): Size? {
+            val options = BitmapFactory.Options()
+            options.inJustDecodeBounds = true
+            BitmapFactory.decodeByteArray(data, 0, data.size, options)
+            if (options.outWidth <= 0 || options.outHeight <= 0)
+                return null
+            return Size(options.outWidth, options.outHeight)
+        }
+
+        /**
+         * Decodes an image subsampled by the largest power of two that keeps it at least as large
+         * as the given size once rotated. The pixels are not rotated.
+         *
+         * @param width The upright width the image is going to be scaled to.
+         * @param height The upright height the image is going to be scaled to.
+         * @param rotation Clockwise rotation in degrees that brings the image upright.
+         * @return The decoded image, `null` when the data is not a supported image.
+         */
+        @JvmStatic
+        fun decodeSampled(data: ByteArray, width: Int, height: Int, rotation: Int): Bitmap? {
+            val bounds = decodeBounds(data) ?: return null
+            val target = CaptureGeometry.rotate(width, height, rotation)
+            val options = BitmapFactory.Options()
+            options.inSampleSize = DecodePlan.sampleSize(bounds.width, bounds.height, target.width, target.height)
+            return BitmapFactory.decodeByteArray(data, 0, data.size, options)
+        }
+
+        /**
+         * Rotates and scales a bitmap into a new bitmap of exactly the given size, in one pass.
+         *
+         * @return The bitmap itself when there is nothing to do.
+         */
+        internal fun drawTransformed(bitmap: Bitmap, size: Size, rotation: Int): Bitmap {
+            if (rotation == 0 && bitmap.width == size.width && bitmap.height == size.height)
+                return bitmap
+            val output = Bitmap.createBitmap(size.width, size.height, Bitmap.Config.ARGB_8888)
+            val matrix = getTransformationMatrix(bitmap.width, bitmap.height, size.width, size.height, rotation, false)
+            Canvas(output).drawBitmap(bitmap, matrix, Paint(Paint.FILTER_BITMAP_FLAG))
+            return output
+        }
+
         fun resize(context: Context, bitmap: Bitmap, width: Int, height: Int): Bitmap {
             val originalHeight = bitmap.height
             val originalWidth = bitmap.width
@@ -81,15 +141,10 @@ open class ImageUtils {
         }
 
         /*** Private **/
-        private fun calculateImageSizePreservingAspectRatio(context: Context, size: Size, originalWidth: Int, originalHeight: Int): Size {
-            val percentWidth = size.width / originalWidth.toFloat()
-            val percentHeight = size.height / originalHeight.toFloat()
-
-            val percent = if (percentHeight < percentWidth) percentHeight else percentWidth
-            val newWidth = (originalWidth * percent).toInt()
-            val newHeight = (originalHeight * percent).toInt()
+        internal fun calculateImageSizePreservingAspectRatio(context: Context, size: Size, originalWidth: Int, originalHeight: Int): Size {
+            val percent = CaptureGeometry.fitScale(originalWidth, originalHeight, size.width, size.height)
             saveParam(context, "current_ratio", percent.toString() + "")
-            return Size(newWidth, newHeight)
+            return CaptureGeometry.scale(originalWidth, originalHeight, percent)
         }
 
         private fun saveParam(context: Context, key: String, value: String) {
@@ -159,29 +214,61 @@ open class ImageUtils {
             }
         }
 
+        @JvmStatic
+        external fun stringFromJNI(): String
+
         /**
-         * Converts YUV420 semi-planar data to ARGB 8888 data using the supplied width
-         * and height. The input and output must already be allocated and non-null.
-         * For efficiency, no error checking is performed.
+         * Converts YUV420 data to ARGB 8888 data using the supplied width and height. The planes
+         * may be planar or semi-planar, with any row and pixel stride. Uses the native converter
+         * when libImageUtils is loaded, the Java implementation otherwise; both produce the same
+         * pixels.
          *
-         * @param y
-         * @param u
-         * @param v
-         * @param uvPixelStride
+         * @param y The luma plane.
+         * @param u The U plane.
+         * @param v The V plane.
+         * @param output A pre-allocated array for the ARGB 8:8:8:8 output data, `width * height`
+         * pixels, or `(width / 2) * (height / 2)` pixels at half size.
          * @param width The width of the input image.
          * @param height The height of the input image.
+         * @param yRowStride The distance between the start of two luma rows, in bytes.
+         * @param uvRowStride The distance between the start of two chroma rows, in bytes.
+         * @param uvPixelStride The distance between two chroma samples of a row, in bytes.
          * @param halfSize If true, downsample to 50% in each dimension, otherwise not.
-         * @param output A pre-allocated array for the ARGB 8:8:8:8 output data.
+         * @throws IllegalArgumentException when a buffer is too small for the frame
          */
         @JvmStatic
-        external fun stringFromJNI(): String
+        fun convertYUV420ToARGB8888(
+                y: ByteArray,
+                u: ByteArray,
+                v: ByteArray,
+                output: IntArray,
+                width: Int,
+                height: Int,
+                yRowStride: Int,
+                uvRowStride: Int,
+                uvPixelStride: Int,
+                halfSize: Boolean) {
+            Yuv420Converter.checkBuffers(y, u, v, output, width, height, yRowStride, uvRowStride,
+                    uvPixelStride, halfSize)
+            if (isNativeLoaded) {
+                nativeConvertYUV420ToARGB8888(y, u, v, output, width, height, yRowStride,
+                        uvRowStride, uvPixelStride, halfSize)
+            } else {
+                Yuv420Converter.convert(y, u, v, output, width, height, yRowStride, uvRowStride,
+                        uvPixelStride, halfSize)
+            }
+        }
 
+        /**
+         * Native counterpart of [convertYUV420ToARGB8888]. For efficiency, no error checking is
+         * performed.
+         */
         @JvmStatic
-        external fun convertYUV420ToARGB8888(
-                y: ByteArray?,
-                u: ByteArray?,
-                v: ByteArray?,
-                output: IntArray?,
+        private external fun nativeConvertYUV420ToARGB8888(
+                y: ByteArray,
+                u: ByteArray,
+                v: ByteArray,
+                output: IntArray,
                 width: Int,
                 height: Int,
                 yRowStride: Int,
@@ -0,0 +1,51 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AdaptiveScanDensityPolicyTest {
+
+    private static void miss(ScanDensityPolicy policy, int frames) {
+        for (int i = 0; i < frames; i++) {
+            policy.onFrameScanned(false);
+        }
+    }
+
+    @Test
+    public void testStartsCoarse() {
+        assertThat(new AdaptiveScanDensityPolicy().nextDensity(), is(3));
+        assertThat(new AdaptiveScanDensityPolicy(4, 2).nextDensity(), is(4));
+    }
+
+    @Test
+    public void testTightensOnMisses() {
+        ScanDensityPolicy policy = new AdaptiveScanDensityPolicy(3, 2);
+        miss(policy, 1);
+        assertThat(policy.nextDensity(), is(3));
+        miss(policy, 1);
+        assertThat(policy.nextDensity(), is(2));
+        miss(policy, 2);
+        assertThat(policy.nextDensity(), is(1));
+        miss(policy, 10);
+        assertThat(policy.nextDensity(), is(1));
+    }
+
+    @Test
+    public void testBacksOffOnSuccess() {
+        ScanDensityPolicy policy = new AdaptiveScanDensityPolicy(3, 1);
+        miss(policy, 2);
+        assertThat(policy.nextDensity(), is(1));
+        policy.onFrameScanned(true);
+        assertThat(policy.nextDensity(), is(3));
+        miss(policy, 1);
+        assertThat(policy.nextDensity(), is(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDensity() {
+        new AdaptiveScanDensityPolicy(0, 1);
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AnalysisDutyCycleTest {
+
+    private static final long SECOND = 1000000000L;
+
+    @Test
+    public void testStaysActiveWithoutIdleMode() {
+        FrameAdmission admission = new FrameAdmission(false);
+        AnalysisDutyCycle cycle = new AnalysisDutyCycle(admission, 0);
+        cycle.setActiveFps(15);
+        cycle.onFrameAnalyzed(60 * SECOND, false, 0f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_ACTIVE));
+        assertThat(admission.getMaxFps(), is(15f));
+    }
+
+    @Test
+    public void testIdleAfterDelay() {
+        FrameAdmission admission = new FrameAdmission(false);
+        AnalysisDutyCycle cycle = new AnalysisDutyCycle(admission, 0);
+        cycle.setIdleMode(2, 30 * SECOND, 10f, 0);
+        cycle.onFrameAnalyzed(29 * SECOND, false, 1f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_ACTIVE));
+        cycle.onFrameAnalyzed(30 * SECOND, false, 1f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_IDLE));
+        assertThat(admission.getMaxFps(), is(2f));
+        assertThat(cycle.getStateNanos(AnalysisDutyCycle.STATE_ACTIVE, 40 * SECOND), is(30 * SECOND));
+        assertThat(cycle.getStateNanos(AnalysisDutyCycle.STATE_IDLE, 40 * SECOND), is(10 * SECOND));
+    }
+
+    @Test
+    public void testWakeOnMotionAndDetection() {
+        FrameAdmission admission = new FrameAdmission(false);
+        AnalysisDutyCycle cycle = new AnalysisDutyCycle(admission, 0);
+        cycle.setIdleMode(2, 30 * SECOND, 10f, 0);
+        cycle.onFrameAnalyzed(30 * SECOND, false, 0f);
+        cycle.onFrameAnalyzed(31 * SECOND, false, 11f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_ACTIVE));
+        assertThat(admission.getMaxFps(), is(0f));
+
+        cycle.onFrameAnalyzed(61 * SECOND, false, 0f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_IDLE));
+        cycle.onFrameAnalyzed(62 * SECOND, true, 0f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_ACTIVE));
+        // The detection restarted the idle delay
+        cycle.onFrameAnalyzed(91 * SECOND, false, 0f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_ACTIVE));
+    }
+
+    @Test
+    public void testEffectiveFps() {
+        AnalysisDutyCycle cycle = new AnalysisDutyCycle(new FrameAdmission(false), 0);
+        assertThat(cycle.getEffectiveFps(), is(0f));
+        for (int frame = 0; frame < 20; frame++) {
+            cycle.onFrameAnalyzed(frame * SECOND / 10, false, 0f);
+        }
+        assertThat(Math.round(cycle.getEffectiveFps()), is(10));
+    }
+
+    @Test
+    public void testResetOnRestart() {
+        FrameAdmission admission = new FrameAdmission(false);
+        AnalysisDutyCycle cycle = new AnalysisDutyCycle(admission, 0);
+        cycle.setActiveFps(15);
+        cycle.setIdleMode(2, 30 * SECOND, 10f, 0);
+        for (int frame = 0; frame <= 400; frame++) {
+            cycle.onFrameAnalyzed(frame * SECOND / 10, false, 0f);
+        }
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_IDLE));
+
+        // Stopped for a minute, then started again
+        cycle.reset(90 * SECOND);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_ACTIVE));
+        assertThat(admission.getMaxFps(), is(15f));
+        cycle.onFrameAnalyzed(90 * SECOND, false, 0f);
+        assertThat(cycle.getState(), is(AnalysisDutyCycle.STATE_ACTIVE));
+        cycle.onFrameAnalyzed(90 * SECOND + SECOND / 10, false, 0f);
+        // The pause is neither in the frame rate nor in the state times
+        assertThat(Math.round(cycle.getEffectiveFps()), is(10));
+        assertThat(cycle.getStateNanos(AnalysisDutyCycle.STATE_ACTIVE, 100 * SECOND), is(40 * SECOND));
+        assertThat(cycle.getStateNanos(AnalysisDutyCycle.STATE_IDLE, 100 * SECOND), is(10 * SECOND));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIdleMode() {
+        new AnalysisDutyCycle(new FrameAdmission(false), 0).setIdleMode(0, SECOND, 1f, 0);
+    }
+
+}
@@ -0,0 +1,146 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class AnalysisFrameTest {
+
+    private static final AnalysisFrame.Recycler NO_OP = new AnalysisFrame.Recycler() {
+        @Override
+        public void recycle(AnalysisFrame frame) {
+        }
+    };
+
+    /**
+     * 4x2 NV21 frame: luma 0..7, then V/U pairs (100, 200) and (101, 201).
+     */
+    private static byte[] nv21() {
+        return new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 100, (byte) 200, 101, (byte) 201};
+    }
+
+    @Test
+    public void testNv21Planes() {
+        AnalysisFrame frame = new AnalysisFrame();
+        frame.setNv21Planes(nv21(), 4, 2);
+        frame.begin(4, 2, 0, 0, null, NO_OP);
+
+        ByteBuffer luma = frame.getLumaBuffer();
+        assertThat(luma.get(5), is((byte) 5));
+        assertThat(frame.getLumaRowStride(), is(4));
+        assertThat(frame.getLumaPixelStride(), is(1));
+
+        ByteBuffer v = frame.getPlaneBuffer(AnalysisFrame.PLANE_V);
+        ByteBuffer u = frame.getPlaneBuffer(AnalysisFrame.PLANE_U);
+        assertThat(frame.getPixelStride(AnalysisFrame.PLANE_U), is(2));
+        assertThat(frame.getRowStride(AnalysisFrame.PLANE_U), is(4));
+        assertThat(v.get(0), is((byte) 100));
+        assertThat(v.get(2), is((byte) 101));
+        assertThat(u.get(0), is((byte) 200));
+        assertThat(u.get(2), is((byte) 201));
+    }
+
+    @Test
+    public void testPlaneBuffer_relativeReadsAcrossReuse() {
+        AnalysisFrame frame = new AnalysisFrame();
+        frame.setNv21Planes(nv21(), 4, 2);
+        frame.begin(4, 2, 0, 0, null, NO_OP);
+        byte[] first = new byte[8];
+        frame.getLumaBuffer().get(first);
+        // A second consumer of the same frame starts from the beginning too
+        byte[] second = new byte[8];
+        frame.getLumaBuffer().get(second);
+        assertArrayEquals(first, second);
+        frame.release();
+
+        // The planes are kept when the buffer comes back for a later frame
+        frame.begin(4, 2, 1, 0, null, NO_OP);
+        byte[] reused = new byte[8];
+        frame.getLumaBuffer().get(reused);
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7}, reused);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNv21Planes_bufferTooSmall() {
+        new AnalysisFrame().setNv21Planes(new byte[10], 4, 2);
+    }
+
+    @Test
+    public void testLumaOf_packedPlaneIsNotCopied() {
+        byte[] data = nv21();
+        AnalysisFrame frame = new AnalysisFrame();
+        frame.setNv21Planes(data, 4, 2);
+        frame.begin(4, 2, 0, 0, data, NO_OP);
+
+        assertThat(new LumaExtractor().lumaOf(frame), is(sameInstance(data)));
+    }
+
+    @Test
+    public void testLumaOf_stridedPlaneIsPacked() {
+        // 2x2 luma with a row stride of 3 and a pixel stride of 1
+        byte[] padded = {1, 2, 0, 3, 4};
+        AnalysisFrame frame = new AnalysisFrame();
+        frame.setPlane(AnalysisFrame.PLANE_Y, ByteBuffer.wrap(padded), 3, 1);
+        frame.begin(2, 2, 0, 0, null, NO_OP);
+
+        byte[] luma = new LumaExtractor().lumaOf(frame);
+        assertThat(luma, is(not(sameInstance(padded))));
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, luma);
+    }
+
+    @Test
+    public void testBegin_inUse() {
+        AnalysisFrame frame = new AnalysisFrame();
+        frame.begin(4, 2, 0, 0, null, NO_OP);
+        try {
+            frame.begin(4, 2, 1, 0, null, NO_OP);
+            throw new AssertionError("A frame in use was restarted");
+        } catch (IllegalStateException expected) {
+            // The first frame is left untouched
+            assertThat(frame.getTimestampNanos(), is(0L));
+        }
+        frame.release();
+        frame.begin(4, 2, 1, 0, null, NO_OP);
+        assertThat(frame.getTimestampNanos(), is(1L));
+    }
+
+    @Test
+    public void testPool_reusesRecycledFrames() {
+        final AnalysisFramePool pool = new AnalysisFramePool(2);
+        final Object[] recycledSource = new Object[1];
+        AnalysisFrame.Recycler recycler = new AnalysisFrame.Recycler() {
+            @Override
+            public void recycle(AnalysisFrame frame) {
+                recycledSource[0] = frame.getSource();
+                pool.recycle(frame);
+            }
+        };
+
+        AnalysisFrame first = pool.acquire();
+        first.begin(4, 2, 0, 0, "image", recycler);
+        first.retain();
+        first.release();
+        // A reference is still held, nothing is given back yet
+        assertThat(pool.size(), is(0));
+
+        first.release();
+        assertThat(recycledSource[0], is((Object) "image"));
+        assertThat(pool.size(), is(1));
+        assertThat(pool.acquire(), is(sameInstance(first)));
+        assertThat(pool.acquire(), is(not(sameInstance(first))));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPool_rejectsFramesInUse() {
+        AnalysisFramePool pool = new AnalysisFramePool(1);
+        AnalysisFrame frame = pool.acquire();
+        frame.begin(4, 2, 0, 0, null, NO_OP);
+        pool.recycle(frame);
+    }
+}
@@ -0,0 +1,47 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BarcodeDeduplicatorTest {
+
+    private static Barcode barcode(BarcodeFormat format, String contents) {
+        Barcode barcode = new Barcode();
+        barcode.setFormat(format);
+        barcode.setContents(contents);
+        return barcode;
+    }
+
+    @Test
+    public void testSuppressesWithinWindow() {
+        BarcodeDeduplicator deduplicator = new BarcodeDeduplicator(1000, 10);
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getEAN13(), "4006381333931"), 0), is(true));
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getEAN13(), "4006381333931"), 500), is(false));
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getEAN13(), "4006381333931"), 999), is(false));
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getEAN13(), "4006381333931"), 1000), is(true));
+    }
+
+    @Test
+    public void testKeyedOnFormatAndContents() {
+        BarcodeDeduplicator deduplicator = new BarcodeDeduplicator(1000, 10);
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getEAN13(), "123"), 0), is(true));
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getCODE128(), "123"), 0), is(true));
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getEAN13(), "456"), 0), is(true));
+    }
+
+    @Test
+    public void testBoundedMemory() {
+        BarcodeDeduplicator deduplicator = new BarcodeDeduplicator(1000, 2);
+        deduplicator.accept(barcode(BarcodeFormat.Companion.getCODE128(), "a"), 0);
+        deduplicator.accept(barcode(BarcodeFormat.Companion.getCODE128(), "b"), 0);
+        // Seeing "a" again makes "b" the least recently seen code
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getCODE128(), "a"), 1), is(false));
+        deduplicator.accept(barcode(BarcodeFormat.Companion.getCODE128(), "c"), 2);
+        assertThat(deduplicator.size(), is(2));
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getCODE128(), "b"), 3), is(true));
+        assertThat(deduplicator.accept(barcode(BarcodeFormat.Companion.getCODE128(), "c"), 3), is(false));
+    }
+
+}
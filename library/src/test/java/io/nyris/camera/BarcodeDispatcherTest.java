@@ -0,0 +1,110 @@
+package io.nyris.camera;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BarcodeDispatcherTest {
+
+    private static List<Barcode> frame(String... contents) {
+        List<Barcode> barcodes = new ArrayList<>();
+        for (String content : contents) {
+            Barcode barcode = new Barcode();
+            barcode.setContents(content);
+            barcodes.add(barcode);
+        }
+        return barcodes;
+    }
+
+    @Test
+    public void testDeliversOnExecutor() {
+        final List<Runnable> posted = new ArrayList<>();
+        final List<String> received = new ArrayList<>();
+        BarcodeDispatcher dispatcher = new BarcodeDispatcher();
+        dispatcher.setDeliveryExecutor(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                posted.add(command);
+            }
+        });
+        dispatcher.addBarcodeListener(new IBarcodeListener() {
+            @Override
+            public void onBarcode(Barcode barcode) {
+                received.add(barcode.getContents());
+            }
+        });
+
+        dispatcher.dispatch(frame("a", "b"));
+        assertThat(received.isEmpty(), is(true));
+        assertThat(posted.size(), is(1));
+
+        posted.get(0).run();
+        assertThat(received, is(Collections.singletonList("b")));
+    }
+
+    @Test
+    public void testRemoveListener() {
+        final List<List<Barcode>> received = new ArrayList<>();
+        IBarcodesListener listener = new IBarcodesListener() {
+            @Override
+            public void onBarcodes(List<Barcode> barcodes) {
+                received.add(barcodes);
+            }
+        };
+        BarcodeDispatcher dispatcher = new BarcodeDispatcher();
+        dispatcher.addBarcodesListener(listener);
+        dispatcher.addBarcodesListener(listener);
+        dispatcher.dispatch(frame("a"));
+        assertThat(received.size(), is(1));
+
+        dispatcher.removeBarcodesListener(listener);
+        assertThat(dispatcher.hasListeners(), is(false));
+        dispatcher.dispatch(frame("a"));
+        assertThat(received.size(), is(1));
+    }
+
+    @Test
+    public void testNothingPostedWithoutListeners() {
+        final int[] posted = new int[1];
+        BarcodeDispatcher dispatcher = new BarcodeDispatcher();
+        dispatcher.setDeliveryExecutor(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                posted[0]++;
+            }
+        });
+        dispatcher.dispatch(frame("a"));
+        assertThat(posted[0], is(0));
+    }
+
+    @Test
+    public void testRemoveWhileDelivering() {
+        final List<String> received = new ArrayList<>();
+        final BarcodeDispatcher dispatcher = new BarcodeDispatcher();
+        dispatcher.addBarcodeListener(new IBarcodeListener() {
+            @Override
+            public void onBarcode(Barcode barcode) {
+                received.add("first");
+                dispatcher.removeBarcodeListener(this);
+            }
+        });
+        dispatcher.addBarcodeListener(new IBarcodeListener() {
+            @Override
+            public void onBarcode(Barcode barcode) {
+                received.add("second");
+            }
+        });
+        dispatcher.dispatch(frame("a"));
+        dispatcher.dispatch(frame("a"));
+        assertThat(received.size(), is(3));
+    }
+
+}
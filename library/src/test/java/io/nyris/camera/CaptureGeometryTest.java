@@ -0,0 +1,37 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CaptureGeometryTest {
+
+    @Test
+    public void testRotate() {
+        assertThat(CaptureGeometry.rotate(4000, 3000, 0), is(new Size(4000, 3000)));
+        assertThat(CaptureGeometry.rotate(4000, 3000, 90), is(new Size(3000, 4000)));
+        assertThat(CaptureGeometry.rotate(4000, 3000, 180), is(new Size(4000, 3000)));
+        assertThat(CaptureGeometry.rotate(4000, 3000, 270), is(new Size(3000, 4000)));
+        assertThat(CaptureGeometry.rotate(4000, 3000, -90), is(new Size(3000, 4000)));
+    }
+
+    @Test
+    public void testFitScale_limitedByHeight() {
+        // 12 MP portrait picture into a 1080x1920 view
+        float scale = CaptureGeometry.fitScale(3000, 4000, 1080, 1920);
+        assertThat(scale, is(0.36f));
+        assertThat(CaptureGeometry.scale(3000, 4000, scale), is(new Size(1080, 1440)));
+    }
+
+    @Test
+    public void testFitScale_limitedByWidth() {
+        float scale = CaptureGeometry.fitScale(1080, 1440, 512, 512);
+        assertThat(CaptureGeometry.scale(1080, 1440, scale), is(new Size(384, 512)));
+    }
+
+    @Test
+    public void testScale_truncates() {
+        assertThat(CaptureGeometry.scale(1001, 999, 0.5f), is(new Size(500, 499)));
+    }
+}
@@ -0,0 +1,128 @@
+package io.nyris.camera;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CaptureProcessorTest {
+
+    /**
+     * Runs the processing tasks only when asked to, in any order.
+     */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> mPending = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mPending.add(command);
+        }
+
+        void run(int index) {
+            mPending.set(index, null).run();
+        }
+    }
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(@NonNull Runnable command) {
+            command.run();
+        }
+    };
+
+    private final List<String> mDelivered = new ArrayList<>();
+
+    private final CaptureProcessor.Receiver<String> mReceiver = new CaptureProcessor.Receiver<String>() {
+        @Override
+        public void onResult(String result) {
+            mDelivered.add(result);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            mDelivered.add("error: " + e.getMessage());
+        }
+    };
+
+    private static Callable<String> task(final String result) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void testDeliversInCaptureOrder() {
+        ManualExecutor processing = new ManualExecutor();
+        CaptureProcessor processor = new CaptureProcessor(processing, DIRECT);
+        processor.submit(task("first"), mReceiver);
+        processor.submit(task("second"), mReceiver);
+        processor.submit(task("third"), mReceiver);
+        assertThat(processor.getQueueDepth(), is(3));
+
+        // The later captures finish first and wait for the first one
+        processing.run(2);
+        processing.run(1);
+        assertThat(mDelivered.size(), is(0));
+        assertThat(processor.getQueueDepth(), is(3));
+
+        processing.run(0);
+        assertThat(mDelivered.toString(), is("[first, second, third]"));
+        assertThat(processor.getQueueDepth(), is(0));
+        assertThat(processor.getMaxQueueDepth(), is(3));
+    }
+
+    @Test
+    public void testErrorsKeepTheirPlace() {
+        ManualExecutor processing = new ManualExecutor();
+        CaptureProcessor processor = new CaptureProcessor(processing, DIRECT);
+        processor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new Exception("undecodable");
+            }
+        }, mReceiver);
+        processor.submit(task("second"), mReceiver);
+
+        processing.run(1);
+        processing.run(0);
+        assertThat(mDelivered.toString(), is("[error: undecodable, second]"));
+    }
+
+    @Test
+    public void testQueueDepthCountsUndeliveredResults() {
+        ManualExecutor processing = new ManualExecutor();
+        ManualExecutor delivery = new ManualExecutor();
+        CaptureProcessor processor = new CaptureProcessor(processing, delivery);
+        processor.submit(task("first"), mReceiver);
+        processing.run(0);
+        // Processed, but the receiver has not run yet
+        assertThat(processor.getQueueDepth(), is(1));
+
+        delivery.run(0);
+        assertThat(processor.getQueueDepth(), is(0));
+        assertThat(mDelivered.toString(), is("[first]"));
+    }
+
+    @Test
+    public void testSetDeliveryExecutor() {
+        ManualExecutor processing = new ManualExecutor();
+        ManualExecutor delivery = new ManualExecutor();
+        CaptureProcessor processor = new CaptureProcessor(processing, DIRECT);
+        processor.submit(task("first"), mReceiver);
+        processor.setDeliveryExecutor(delivery);
+        processing.run(0);
+
+        assertThat(mDelivered.size(), is(0));
+        assertThat(delivery.mPending.size(), is(1));
+    }
+}
@@ -0,0 +1,30 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DecodePlanTest {
+
+    @Test
+    public void testSampleSize_largestPowerOfTwoAboveTarget() {
+        // 12 MP into 512x384: 4000/8 = 500 would fall below 512
+        assertThat(DecodePlan.sampleSize(4000, 3000, 512, 384), is(4));
+        assertThat(DecodePlan.sampleSize(4096, 3072, 512, 384), is(8));
+    }
+
+    @Test
+    public void testSampleSize_limitedByEitherSide() {
+        assertThat(DecodePlan.sampleSize(4000, 3000, 100, 1000), is(2));
+        assertThat(DecodePlan.sampleSize(4000, 3000, 1000, 100), is(4));
+    }
+
+    @Test
+    public void testSampleSize_noReduction() {
+        assertThat(DecodePlan.sampleSize(640, 480, 640, 480), is(1));
+        assertThat(DecodePlan.sampleSize(640, 480, 1280, 960), is(1));
+        assertThat(DecodePlan.sampleSize(640, 480, 0, 480), is(1));
+    }
+
+}
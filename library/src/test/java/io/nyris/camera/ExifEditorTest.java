@@ -0,0 +1,179 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ExifEditorTest {
+
+    private static final byte[] SCAN = {(byte) 0xFF, (byte) 0xDA, 0, 4, 1, 2, 3, 4,
+            (byte) 0xFF, (byte) 0xD9};
+    private static final String MAKE = "nyris camera";
+
+    private static void write(ByteArrayOutputStream out, int value, int length,
+                              boolean littleEndian) {
+        for (int i = 0; i < length; i++) {
+            int shift = 8 * (littleEndian ? i : length - 1 - i);
+            out.write(value >>> shift);
+        }
+    }
+
+    /**
+     * JPEG whose IFD0 holds the make, stored out of line, and the orientation.
+     */
+    private static byte[] jpeg(boolean littleEndian) {
+        byte[] make = (MAKE + "\0").getBytes();
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        write(tiff, littleEndian ? 0x49492A00 : 0x4D4D002A, 4, false);
+        write(tiff, 8, 4, littleEndian);
+        write(tiff, 2, 2, littleEndian);
+        write(tiff, ExifEditor.TAG_MAKE, 2, littleEndian);
+        write(tiff, ExifEditor.TYPE_ASCII, 2, littleEndian);
+        write(tiff, make.length, 4, littleEndian);
+        write(tiff, 8 + 2 + 2 * 12 + 4, 4, littleEndian);
+        write(tiff, ExifEditor.TAG_ORIENTATION, 2, littleEndian);
+        write(tiff, ExifEditor.TYPE_SHORT, 2, littleEndian);
+        write(tiff, 1, 4, littleEndian);
+        write(tiff, 1, 2, littleEndian);
+        write(tiff, 0, 2, littleEndian);
+        write(tiff, 0, 4, littleEndian);
+        tiff.write(make, 0, make.length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, 0xFFD8, 2, false);
+        write(out, 0xFFE1, 2, false);
+        write(out, 2 + 6 + tiff.size(), 2, false);
+        write(out, 0x45786966, 4, false);
+        write(out, 0, 2, false);
+        byte[] body = tiff.toByteArray();
+        out.write(body, 0, body.length);
+        out.write(SCAN, 0, SCAN.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] jpegWithoutExif() {
+        byte[] jpeg = new byte[2 + SCAN.length];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        System.arraycopy(SCAN, 0, jpeg, 2, SCAN.length);
+        return jpeg;
+    }
+
+    private static void assertImageDataKept(byte[] jpeg) {
+        assertThat(Arrays.copyOfRange(jpeg, jpeg.length - SCAN.length, jpeg.length), is(SCAN));
+    }
+
+    @Test
+    public void testRead() {
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            ExifEditor editor = new ExifEditor(jpeg(littleEndian));
+            assertThat(editor.getString(ExifEditor.IFD_0, ExifEditor.TAG_MAKE), is(MAKE));
+            assertThat(editor.getInt(ExifEditor.IFD_0, ExifEditor.TAG_ORIENTATION, 0), is(1));
+            assertThat(editor.getString(ExifEditor.IFD_0, ExifEditor.TAG_MODEL), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void testEditInPlace() {
+        byte[] jpeg = jpeg(true);
+        ExifEditor editor = new ExifEditor(jpeg);
+        editor.setOrientation(270);
+        editor.setString(ExifEditor.IFD_0, ExifEditor.TAG_MAKE, "nyris");
+
+        assertThat(editor.needsCopy(), is(false));
+        assertThat(editor.toByteArray(), is(sameInstance(jpeg)));
+        assertThat(Exif.getOrientation(jpeg), is(270f));
+        ExifEditor reread = new ExifEditor(jpeg);
+        assertThat(reread.getString(ExifEditor.IFD_0, ExifEditor.TAG_MAKE), is("nyris"));
+    }
+
+    @Test
+    public void testAddTags() {
+        for (boolean littleEndian : new boolean[]{false, true}) {
+            byte[] jpeg = jpeg(littleEndian);
+            ExifEditor editor = new ExifEditor(jpeg);
+            editor.setString(ExifEditor.IFD_0, ExifEditor.TAG_SOFTWARE, "nyris sdk");
+            editor.setInt(ExifEditor.IFD_EXIF, 0xA002, ExifEditor.TYPE_LONG, 4000);
+            assertThat(editor.needsCopy(), is(true));
+
+            byte[] edited = editor.toByteArray();
+            assertThat(edited, is(not(sameInstance(jpeg))));
+            assertImageDataKept(edited);
+
+            ExifEditor reread = new ExifEditor(edited);
+            assertThat(reread.getString(ExifEditor.IFD_0, ExifEditor.TAG_SOFTWARE), is("nyris sdk"));
+            assertThat(reread.getInt(ExifEditor.IFD_EXIF, 0xA002, 0), is(4000));
+            // Existing tags and their out of line values are carried over
+            assertThat(reread.getString(ExifEditor.IFD_0, ExifEditor.TAG_MAKE), is(MAKE));
+            assertThat(reread.getInt(ExifEditor.IFD_0, ExifEditor.TAG_ORIENTATION, 0), is(1));
+        }
+    }
+
+    @Test
+    public void testGrowExistingValue() {
+        ExifEditor editor = new ExifEditor(jpeg(false));
+        String longer = "nyris camera for android";
+        editor.setString(ExifEditor.IFD_0, ExifEditor.TAG_MAKE, longer);
+
+        byte[] edited = editor.toByteArray();
+        assertThat(new ExifEditor(edited).getString(ExifEditor.IFD_0, ExifEditor.TAG_MAKE),
+                is(longer));
+    }
+
+    @Test
+    public void testSpliceSegment() {
+        TimeZone timeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        try {
+            ExifEditor editor = new ExifEditor(jpegWithoutExif());
+            editor.setDateTime(0);
+            editor.setOrientation(90);
+            byte[] edited = editor.toByteArray();
+
+            assertImageDataKept(edited);
+            assertThat(Exif.getOrientation(edited), is(90f));
+            ExifEditor reread = new ExifEditor(edited);
+            assertThat(reread.getString(ExifEditor.IFD_0, ExifEditor.TAG_DATE_TIME),
+                    is("1970:01:01 00:00:00"));
+            assertThat(reread.getString(ExifEditor.IFD_EXIF, ExifEditor.TAG_DATE_TIME_ORIGINAL),
+                    is("1970:01:01 00:00:00"));
+            assertThat(reread.getString(ExifEditor.IFD_EXIF, ExifEditor.TAG_DATE_TIME_DIGITIZED),
+                    is("1970:01:01 00:00:00"));
+
+            // A second round of edits happens in place in the new segment
+            reread.setDateTime(1000);
+            assertThat(reread.toByteArray(), is(sameInstance(edited)));
+        } finally {
+            TimeZone.setDefault(timeZone);
+        }
+    }
+
+    @Test
+    public void testMalformedValueOffset() {
+        // The value offset of the make, in the first IFD0 entry
+        int field = 2 + 4 + 6 + 8 + 2 + 8;
+        for (int valueOffset : new int[]{2, -16, 0x7FFFFFF0}) {
+            byte[] jpeg = jpeg(false);
+            Exif.unpack(jpeg, field, 4, false, valueOffset);
+            try {
+                new ExifEditor(jpeg);
+                throw new AssertionError("Value offset " + valueOffset + " was accepted");
+            } catch (IllegalArgumentException expected) {
+                // Rejected before any value is read
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAJpeg() {
+        new ExifEditor(new byte[]{1, 2, 3, 4});
+    }
+}
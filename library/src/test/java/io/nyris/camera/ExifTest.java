@@ -0,0 +1,140 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ExifTest {
+
+    private static final byte[] SOI = {(byte) 0xFF, (byte) 0xD8};
+    private static final byte[] SCAN = {(byte) 0xFF, (byte) 0xDA, 0, 4, 1, 2, 3, 4,
+            (byte) 0xFF, (byte) 0xD9};
+    private static final byte[] JFIF = {(byte) 0xFF, (byte) 0xE0, 0, 7, 'J', 'F', 'I', 'F', 0};
+
+    private static void write(ByteArrayOutputStream out, int value, int length,
+                              boolean littleEndian) {
+        for (int i = 0; i < length; i++) {
+            int shift = 8 * (littleEndian ? i : length - 1 - i);
+            out.write(value >>> shift);
+        }
+    }
+
+    /**
+     * Builds an EXIF APP1 segment with one IFD0 entry.
+     */
+    private static byte[] exifSegment(int tag, int value, boolean littleEndian) {
+        ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+        write(tiff, littleEndian ? 0x49492A00 : 0x4D4D002A, 4, false);
+        write(tiff, 8, 4, littleEndian);
+        write(tiff, 1, 2, littleEndian);
+        write(tiff, tag, 2, littleEndian);
+        write(tiff, 3, 2, littleEndian);
+        write(tiff, 1, 4, littleEndian);
+        write(tiff, value, 2, littleEndian);
+        write(tiff, 0, 2, littleEndian);
+        write(tiff, 0, 4, littleEndian);
+
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        write(segment, 0xFFE1, 2, false);
+        write(segment, 2 + 6 + tiff.size(), 2, false);
+        write(segment, 0x45786966, 4, false);
+        write(segment, 0, 2, false);
+        byte[] body = tiff.toByteArray();
+        segment.write(body, 0, body.length);
+        return segment.toByteArray();
+    }
+
+    private static byte[] jpeg(byte[]... segments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(SOI, 0, SOI.length);
+        for (byte[] segment : segments) {
+            out.write(segment, 0, segment.length);
+        }
+        out.write(SCAN, 0, SCAN.length);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testGetOrientation() {
+        assertThat(Exif.getOrientation(jpeg(exifSegment(0x0112, 6, false))), is(90f));
+        assertThat(Exif.getOrientation(jpeg(JFIF, exifSegment(0x0112, 8, true))), is(270f));
+    }
+
+    @Test
+    public void testSetOrientation_inPlace() {
+        byte[] jpeg = jpeg(exifSegment(0x0112, 1, true));
+        byte[] before = jpeg.clone();
+
+        assertThat(Exif.setOrientation(jpeg, 180), is(true));
+        assertThat(Exif.getOrientation(jpeg), is(180f));
+        // Only the orientation value changed
+        int changed = 0;
+        for (int i = 0; i < jpeg.length; i++) {
+            if (jpeg[i] != before[i]) {
+                changed++;
+            }
+        }
+        assertThat(changed, is(1));
+    }
+
+    @Test
+    public void testSetOrientation_noTag() {
+        assertThat(Exif.setOrientation(jpeg(JFIF), 90), is(false));
+        assertThat(Exif.setOrientation(jpeg(exifSegment(0x010F, 0, false)), 90), is(false));
+    }
+
+    @Test
+    public void testWithOrientation_normalizesUnsupportedValue() {
+        // Mirrored orientation, read as upright
+        byte[] jpeg = jpeg(exifSegment(0x0112, 2, false));
+        assertThat(Exif.withOrientation(jpeg, 0), is(sameInstance(jpeg)));
+        assertThat(Exif.getOrientation(jpeg), is(0f));
+        assertThat(Exif.setOrientation(jpeg, 0), is(true));
+    }
+
+    @Test
+    public void testWithOrientation_splicesSegmentAfterJfif() {
+        byte[] jpeg = jpeg(JFIF);
+        byte[] rotated = Exif.withOrientation(jpeg, 90);
+
+        assertThat(Exif.getOrientation(rotated), is(90f));
+        assertThat(rotated.length, is(jpeg.length + 36));
+        // The JFIF header stays first, the image data is carried over unchanged
+        assertThat(Arrays.copyOfRange(rotated, 0, 2 + JFIF.length),
+                is(Arrays.copyOfRange(jpeg, 0, 2 + JFIF.length)));
+        assertThat(rotated[2 + JFIF.length + 1], is((byte) 0xE1));
+        assertThat(Arrays.copyOfRange(rotated, rotated.length - SCAN.length, rotated.length),
+                is(SCAN));
+    }
+
+    @Test
+    public void testWithOrientation_uprightWithoutTag() {
+        byte[] jpeg = jpeg(JFIF);
+        assertThat(Exif.withOrientation(jpeg, 0), is(sameInstance(jpeg)));
+    }
+
+    @Test
+    public void testWithOrientation_exifWithoutTag() {
+        byte[] rotated = Exif.withOrientation(jpeg(exifSegment(0x010F, 0, false)), 90);
+        assertThat(Exif.getOrientation(rotated), is(90f));
+    }
+
+    @Test
+    public void testWithOrientation_malformedExif() {
+        byte[] jpeg = jpeg(exifSegment(0x010F, 0, false));
+        // Points IFD0 past the end of the segment
+        jpeg[2 + 4 + 6 + 7] = 100;
+        assertThat(Exif.withOrientation(jpeg, 90), is(nullValue()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithOrientation_unsupportedRotation() {
+        Exif.withOrientation(jpeg(JFIF), 45);
+    }
+}
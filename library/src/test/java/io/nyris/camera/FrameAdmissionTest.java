@@ -0,0 +1,77 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FrameAdmissionTest {
+
+    private static final long FRAME_NANOS = 33333333L;
+
+    @Test
+    public void testExclusive() {
+        FrameAdmission admission = new FrameAdmission(true);
+        assertThat(admission.tryAdmit(0), is(true));
+        assertThat(admission.tryAdmit(FRAME_NANOS), is(false));
+        admission.finish();
+        assertThat(admission.tryAdmit(2 * FRAME_NANOS), is(true));
+    }
+
+    @Test
+    public void testNotExclusive() {
+        FrameAdmission admission = new FrameAdmission(false);
+        assertThat(admission.tryAdmit(0), is(true));
+        assertThat(admission.tryAdmit(FRAME_NANOS), is(true));
+    }
+
+    @Test
+    public void testDisabled() {
+        FrameAdmission admission = new FrameAdmission(true);
+        admission.setEnabled(false);
+        assertThat(admission.tryAdmit(0), is(false));
+        admission.setEnabled(true);
+        assertThat(admission.tryAdmit(0), is(true));
+    }
+
+    @Test
+    public void testFrameRateCap() {
+        FrameAdmission admission = new FrameAdmission(false);
+        admission.setMaxFps(10);
+        int admitted = 0;
+        // 3 seconds of a 30 fps camera
+        for (int frame = 0; frame < 90; frame++) {
+            if (admission.tryAdmit(frame * FRAME_NANOS + 1000000000L)) {
+                admitted++;
+            }
+        }
+        assertThat(admitted, is(30));
+    }
+
+    @Test
+    public void testFrameRateCapWithJitter() {
+        FrameAdmission admission = new FrameAdmission(true);
+        admission.setMaxFps(10);
+        int admitted = 0;
+        for (int frame = 0; frame < 90; frame++) {
+            long jitter = frame % 2 == 0 ? 3000000L : -3000000L;
+            if (admission.tryAdmit(frame * FRAME_NANOS + jitter)) {
+                admitted++;
+                admission.finish();
+            }
+        }
+        assertThat(admitted, is(30));
+    }
+
+    @Test
+    public void testLateFramesDoNotBurst() {
+        FrameAdmission admission = new FrameAdmission(false);
+        admission.setMaxFps(10);
+        assertThat(admission.tryAdmit(0), is(true));
+        // The camera stalled for a second
+        assertThat(admission.tryAdmit(1000000000L), is(true));
+        assertThat(admission.tryAdmit(1000000000L + FRAME_NANOS), is(false));
+        assertThat(admission.getMaxFps(), is(10f));
+    }
+
+}
@@ -0,0 +1,127 @@
+package io.nyris.camera;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FrameAnalyzerDispatcherTest {
+
+    /**
+     * Runs the posted analyses only when asked to.
+     */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> mPending = new ArrayList<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mPending.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> pending = new ArrayList<>(mPending);
+            mPending.clear();
+            for (Runnable runnable : pending) {
+                runnable.run();
+            }
+        }
+    }
+
+    private static class CountingAnalyzer implements FrameAnalyzer {
+        final List<Long> mTimestamps = new ArrayList<>();
+
+        @Override
+        public void analyze(@NonNull AnalysisFrame frame) {
+            mTimestamps.add(frame.getTimestampNanos());
+        }
+    }
+
+    private final int[] mRecycled = new int[1];
+
+    private AnalysisFrame frame(long timestamp) {
+        AnalysisFrame frame = new AnalysisFrame();
+        frame.setPlane(AnalysisFrame.PLANE_Y, ByteBuffer.allocate(16), 4, 1);
+        frame.begin(4, 4, timestamp, 90, null, new AnalysisFrame.Recycler() {
+            @Override
+            public void recycle(AnalysisFrame frame) {
+                mRecycled[0]++;
+            }
+        });
+        return frame;
+    }
+
+    @Test
+    public void testFanOut() {
+        FrameAnalyzerDispatcher dispatcher = new FrameAnalyzerDispatcher();
+        ManualExecutor executor = new ManualExecutor();
+        CountingAnalyzer first = new CountingAnalyzer();
+        CountingAnalyzer second = new CountingAnalyzer();
+        dispatcher.addAnalyzer(first, executor);
+        dispatcher.addAnalyzer(second, executor);
+
+        AnalysisFrame frame = frame(1);
+        dispatcher.dispatch(frame);
+        frame.release();
+        // The analyzers still hold the frame
+        assertThat(mRecycled[0], is(0));
+
+        executor.runAll();
+        assertThat(first.mTimestamps.size(), is(1));
+        assertThat(second.mTimestamps.size(), is(1));
+        assertThat(mRecycled[0], is(1));
+    }
+
+    @Test
+    public void testIndependentBackpressure() {
+        FrameAnalyzerDispatcher dispatcher = new FrameAnalyzerDispatcher();
+        ManualExecutor slowExecutor = new ManualExecutor();
+        ManualExecutor fastExecutor = new ManualExecutor();
+        CountingAnalyzer slow = new CountingAnalyzer();
+        CountingAnalyzer fast = new CountingAnalyzer();
+        dispatcher.addAnalyzer(slow, slowExecutor);
+        dispatcher.addAnalyzer(fast, fastExecutor);
+
+        for (long timestamp = 1; timestamp <= 3; timestamp++) {
+            AnalysisFrame frame = frame(timestamp);
+            dispatcher.dispatch(frame);
+            frame.release();
+            fastExecutor.runAll();
+        }
+        slowExecutor.runAll();
+
+        assertThat(fast.mTimestamps.size(), is(3));
+        assertThat(slow.mTimestamps.size(), is(1));
+        assertThat(slow.mTimestamps.get(0), is(1L));
+        assertThat(dispatcher.getDroppedFrames(slow), is(2L));
+        assertThat(dispatcher.getDroppedFrames(fast), is(0L));
+        assertThat(mRecycled[0], is(3));
+    }
+
+    @Test
+    public void testRemoveAnalyzer() {
+        FrameAnalyzerDispatcher dispatcher = new FrameAnalyzerDispatcher();
+        CountingAnalyzer analyzer = new CountingAnalyzer();
+        dispatcher.addAnalyzer(analyzer, new ManualExecutor());
+        assertThat(dispatcher.hasAnalyzers(), is(true));
+        assertThat(dispatcher.getAnalyzerCount(), is(1));
+        dispatcher.removeAnalyzer(analyzer);
+        assertThat(dispatcher.hasAnalyzers(), is(false));
+        assertThat(dispatcher.getAnalyzerCount(), is(0));
+        assertThat(dispatcher.getDroppedFrames(analyzer), is(-1L));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTooOften() {
+        AnalysisFrame frame = frame(1);
+        frame.release();
+        frame.release();
+    }
+
+}
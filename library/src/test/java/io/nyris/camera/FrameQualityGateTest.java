@@ -0,0 +1,75 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class FrameQualityGateTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int[] FULL_FRAME = {0, 0, WIDTH, HEIGHT};
+
+    private static byte[] uniform(int value) {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        java.util.Arrays.fill(luma, (byte) value);
+        return luma;
+    }
+
+    private static byte[] stripes(int shift) {
+        byte[] luma = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                luma[y * WIDTH + x] = (byte) (((x + shift) / 2) % 2 == 0 ? 20 : 230);
+            }
+        }
+        return luma;
+    }
+
+    @Test
+    public void testSkipsBlurredFrame() {
+        FrameQualityGate gate = new FrameQualityGate(50f, Float.MAX_VALUE);
+        assertThat(gate.accept(uniform(128), WIDTH, HEIGHT, FULL_FRAME), is(false));
+        assertThat(gate.getSharpness(), is(0f));
+    }
+
+    @Test
+    public void testAcceptsSharpFrame() {
+        FrameQualityGate gate = new FrameQualityGate(50f, Float.MAX_VALUE);
+        assertThat(gate.accept(stripes(0), WIDTH, HEIGHT, FULL_FRAME), is(true));
+        assertTrue(gate.getSharpness() > 50f);
+    }
+
+    @Test
+    public void testSkipsMovingFrame() {
+        FrameQualityGate gate = new FrameQualityGate(0f, 10f);
+        // Nothing to compare the first frame with
+        assertThat(gate.accept(stripes(0), WIDTH, HEIGHT, FULL_FRAME), is(true));
+        assertThat(gate.accept(stripes(0), WIDTH, HEIGHT, FULL_FRAME), is(true));
+        assertThat(gate.getMotion(), is(0f));
+        assertThat(gate.accept(stripes(2), WIDTH, HEIGHT, FULL_FRAME), is(false));
+        assertTrue(gate.getMotion() > 10f);
+    }
+
+    @Test
+    public void testRegionChangeResetsMotion() {
+        FrameQualityGate gate = new FrameQualityGate(0f, 10f);
+        gate.accept(stripes(0), WIDTH, HEIGHT, FULL_FRAME);
+        assertThat(gate.accept(stripes(2), WIDTH, HEIGHT, new int[]{0, 0, 160, 120}), is(true));
+        assertThat(gate.getMotion(), is(0f));
+    }
+
+    @Test
+    public void testTinyRegionIsAccepted() {
+        FrameQualityGate gate = new FrameQualityGate(50f, 0f);
+        assertThat(gate.accept(uniform(0), WIDTH, HEIGHT, new int[]{10, 10, 0, 10}), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreshold() {
+        new FrameQualityGate(-1f, 0f);
+    }
+
+}
@@ -0,0 +1,72 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class LumaDownscalerTest {
+
+    @Test
+    public void testHalve() {
+        byte[] source = {
+                0, 4, 10, 10, 7,
+                8, 4, 10, 11, 7,
+                (byte) 255, (byte) 255, 0, 0, 7
+        };
+        byte[] output = new byte[2];
+        LumaDownscaler.halve(source, 5, 3, output);
+        assertArrayEquals(new byte[]{4, 10}, output);
+    }
+
+    @Test
+    public void testHalveInPlace() {
+        byte[] frame = {
+                0, 0, 100, 100,
+                0, 0, 100, 100,
+                50, 50, (byte) 200, (byte) 200,
+                50, 50, (byte) 200, (byte) 200
+        };
+        LumaDownscaler.halve(frame, 4, 4, frame);
+        assertArrayEquals(new byte[]{0, 100, 50, (byte) 200},
+                java.util.Arrays.copyOf(frame, 4));
+    }
+
+    @Test
+    public void testDownscaleToFit() {
+        LumaDownscaler downscaler = new LumaDownscaler();
+        byte[] frame = new byte[1920 * 1080];
+        java.util.Arrays.fill(frame, (byte) 77);
+        byte[] scaled = downscaler.downscale(frame, 1920, 1080, 640);
+        assertThat(downscaler.getWidth(), is(480));
+        assertThat(downscaler.getHeight(), is(270));
+        assertThat(scaled[480 * 270 - 1], is((byte) 77));
+    }
+
+    @Test
+    public void testToSourceBounds() {
+        LumaDownscaler downscaler = new LumaDownscaler();
+        downscaler.downscale(new byte[1920 * 1080], 1920, 1080, 640);
+        assertThat(downscaler.getScale(), is(4));
+        assertArrayEquals(new int[]{40, 80, 400, 120},
+                downscaler.toSourceBounds(new int[]{10, 20, 100, 30}));
+
+        int[] bounds = {10, 20, 100, 30};
+        downscaler.downscale(new byte[640 * 480], 640, 480, 640);
+        assertThat(downscaler.getScale(), is(1));
+        assertThat(downscaler.toSourceBounds(bounds), is(sameInstance(bounds)));
+    }
+
+    @Test
+    public void testNoScalingNeeded() {
+        LumaDownscaler downscaler = new LumaDownscaler();
+        byte[] frame = new byte[640 * 480];
+        assertThat(downscaler.downscale(frame, 640, 480, 640), is(sameInstance(frame)));
+        assertThat(downscaler.downscale(frame, 640, 480, 0), is(sameInstance(frame)));
+        assertThat(downscaler.getWidth(), is(640));
+        assertThat(downscaler.getHeight(), is(480));
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class LumaExtractorTest {
+
+    /**
+     * Builds a plane where every pixel holds {@code row * width + col} and padding holds -1.
+     */
+    private static ByteBuffer plane(int width, int height, int rowStride, int pixelStride,
+                                    boolean padLastRow) {
+        int size = padLastRow ? height * rowStride
+                : (height - 1) * rowStride + (width - 1) * pixelStride + 1;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(i, (byte) -1);
+        }
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                buffer.put(row * rowStride + col * pixelStride, (byte) (row * width + col));
+            }
+        }
+        return buffer;
+    }
+
+    private static byte[] packed(int width, int height) {
+        byte[] expected = new byte[width * height];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) i;
+        }
+        return expected;
+    }
+
+    @Test
+    public void testExtract_packed() {
+        ByteBuffer buffer = plane(4, 3, 4, 1, true);
+        byte[] luma = new LumaExtractor().extract(buffer, 4, 3, 4, 1);
+        assertArrayEquals(packed(4, 3), luma);
+        assertThat(buffer.position(), is(0));
+    }
+
+    @Test
+    public void testExtract_paddedRows() {
+        byte[] expected = packed(5, 4);
+        assertArrayEquals(expected, new LumaExtractor().extract(plane(5, 4, 8, 1, true), 5, 4, 8, 1));
+        assertArrayEquals(expected, new LumaExtractor().extract(plane(5, 4, 8, 1, false), 5, 4, 8, 1));
+    }
+
+    @Test
+    public void testExtract_pixelStride() {
+        ByteBuffer buffer = plane(3, 3, 8, 2, false);
+        byte[] luma = new LumaExtractor().extract(buffer, 3, 3, 8, 2);
+        assertArrayEquals(packed(3, 3), luma);
+        assertThat(buffer.position(), is(0));
+    }
+
+    @Test
+    public void testExtract_startsAtPosition() {
+        ByteBuffer buffer = ByteBuffer.allocate(2 + 6);
+        buffer.put(new byte[]{-1, -1, 0, 1, 2, 3, 4, 5});
+        buffer.position(2);
+        byte[] luma = new LumaExtractor().extract(buffer, 3, 2, 3, 1);
+        assertArrayEquals(packed(3, 2), luma);
+        assertThat(buffer.position(), is(2));
+    }
+
+    @Test
+    public void testExtract_reusesBuffer() {
+        LumaExtractor extractor = new LumaExtractor();
+        byte[] first = extractor.extract(plane(4, 2, 6, 1, true), 4, 2, 6, 1);
+        byte[] second = extractor.extract(plane(4, 2, 4, 1, true), 4, 2, 4, 1);
+        assertThat(second, is(sameInstance(first)));
+        byte[] third = extractor.extract(plane(2, 2, 2, 1, true), 2, 2, 2, 1);
+        assertThat(third, is(not(sameInstance(first))));
+        assertArrayEquals(packed(2, 2), third);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExtract_planeTooSmall() {
+        new LumaExtractor().extract(ByteBuffer.allocate(10), 4, 3, 4, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExtract_invalidStride() {
+        new LumaExtractor().extract(ByteBuffer.allocate(12), 4, 3, 3, 1);
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class ScanBandsTest {
+
+    @Test
+    public void testSingleBand() {
+        int[][] bands = ScanBands.split(new int[]{0, 0, 640, 480}, 1, 40);
+        assertThat(bands.length, is(1));
+        assertArrayEquals(new int[]{0, 0, 640, 480}, bands[0]);
+    }
+
+    @Test
+    public void testOverlappingBands() {
+        int[][] bands = ScanBands.split(new int[]{0, 0, 640, 480}, 3, 20);
+        assertThat(bands.length, is(3));
+        assertArrayEquals(new int[]{0, 0, 640, 180}, bands[0]);
+        assertArrayEquals(new int[]{0, 140, 640, 200}, bands[1]);
+        assertArrayEquals(new int[]{0, 300, 640, 180}, bands[2]);
+    }
+
+    @Test
+    public void testBandsStayInRegion() {
+        int[][] bands = ScanBands.split(new int[]{100, 50, 200, 130}, 2, 100);
+        assertThat(bands.length, is(2));
+        assertArrayEquals(new int[]{100, 50, 200, 130}, bands[0]);
+        assertArrayEquals(new int[]{100, 50, 200, 130}, bands[1]);
+    }
+
+    @Test
+    public void testShortRegionUsesFewerBands() {
+        int[][] bands = ScanBands.split(new int[]{0, 0, 640, 100}, 8, 0);
+        assertThat(bands.length, is(100 / ScanBands.MIN_BAND_HEIGHT));
+        assertThat(ScanBands.split(new int[]{0, 0, 640, 10}, 8, 0).length, is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCount() {
+        ScanBands.split(new int[]{0, 0, 640, 480}, 0, 0);
+    }
+
+}
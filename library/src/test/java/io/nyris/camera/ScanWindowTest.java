@@ -0,0 +1,59 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class ScanWindowTest {
+
+    // Left quarter of the screen, top half
+    private final ScanWindow window = new ScanWindow(0f, 0f, 0.25f, 0.5f);
+
+    @Test
+    public void testFromView() {
+        ScanWindow fromView = ScanWindow.fromView(0, 0, 270, 960, 1080, 1920);
+        assertThat(fromView, is(window));
+    }
+
+    @Test
+    public void testClamp() {
+        ScanWindow clamped = new ScanWindow(0.5f, 1.5f, -1f, 0.5f);
+        assertThat(clamped, is(new ScanWindow(0f, 0.5f, 0.5f, 1f)));
+        assertThat(new ScanWindow(0.5f, 0f, 0.5f, 1f).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testToFrameCrop_noRotation() {
+        assertArrayEquals(new int[]{0, 0, 160, 240}, window.toFrameCrop(640, 480, 0, false));
+    }
+
+    @Test
+    public void testToFrameCrop_rotation90() {
+        // Frame is landscape, screen is portrait: screen left is frame bottom
+        assertArrayEquals(new int[]{0, 360, 320, 120}, window.toFrameCrop(640, 480, 90, false));
+    }
+
+    @Test
+    public void testToFrameCrop_rotation180() {
+        assertArrayEquals(new int[]{480, 240, 160, 240}, window.toFrameCrop(640, 480, 180, false));
+    }
+
+    @Test
+    public void testToFrameCrop_rotation270() {
+        assertArrayEquals(new int[]{320, 0, 320, 120}, window.toFrameCrop(640, 480, 270, false));
+    }
+
+    @Test
+    public void testToFrameCrop_mirrored() {
+        assertArrayEquals(new int[]{480, 0, 160, 240}, window.toFrameCrop(640, 480, 0, true));
+    }
+
+    @Test
+    public void testToFrameCrop_centerBand() {
+        ScanWindow band = new ScanWindow(0f, 0.3f, 1f, 0.7f);
+        assertArrayEquals(new int[]{192, 0, 256, 480}, band.toFrameCrop(640, 480, 90, false));
+    }
+
+}
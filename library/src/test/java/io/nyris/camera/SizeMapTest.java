@@ -19,6 +19,7 @@ package io.nyris.camera;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class SizeMapTest {
@@ -43,6 +44,20 @@ public class SizeMapTest {
         assertThat(map.sizes(ratio).size(), is(3));
     }
 
+    @Test
+    public void testLargestWithin() {
+        SizeMap map = new SizeMap();
+        map.add(new Size(1920, 1080));
+        map.add(new Size(1280, 720));
+        map.add(new Size(640, 360));
+        map.add(new Size(640, 480));
+        AspectRatio ratio = AspectRatio.of(16, 9);
+        assertThat(map.largestWithin(ratio, 1280), is(new Size(1280, 720)));
+        assertThat(map.largestWithin(ratio, 1000), is(new Size(640, 360)));
+        assertThat(map.largestWithin(ratio, 320), is(nullValue()));
+        assertThat(map.largestWithin(AspectRatio.of(1, 1), 4000), is(nullValue()));
+    }
+
     @Test
     public void testClear() {
         SizeMap map = new SizeMap();
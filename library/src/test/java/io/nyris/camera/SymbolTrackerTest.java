@@ -0,0 +1,54 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+public class SymbolTrackerTest {
+
+    private static final int[] FULL_FRAME = {0, 0, 640, 480};
+
+    @Test
+    public void testNothingTracked() {
+        assertNull(new SymbolTracker().searchWindow(FULL_FRAME, 640, 480));
+    }
+
+    @Test
+    public void testWindowAroundSymbol() {
+        SymbolTracker tracker = new SymbolTracker();
+        tracker.update(Collections.singletonList(new int[]{300, 200, 40, 20}), 640, 480);
+        assertArrayEquals(new int[]{260, 160, 120, 100}, tracker.searchWindow(FULL_FRAME, 640, 480));
+    }
+
+    @Test
+    public void testWindowAroundScanLine() {
+        // 1D symbols come back as a line, the window still covers the code around it
+        SymbolTracker tracker = new SymbolTracker();
+        tracker.update(Collections.singletonList(new int[]{300, 200, 100, 0}), 640, 480);
+        assertArrayEquals(new int[]{200, 100, 300, 200}, tracker.searchWindow(FULL_FRAME, 640, 480));
+    }
+
+    @Test
+    public void testWindowClippedToRegion() {
+        SymbolTracker tracker = new SymbolTracker();
+        tracker.update(Arrays.asList(new int[]{0, 0, 10, 10}, new int[]{20, 20, 10, 10}), 640, 480);
+        assertArrayEquals(new int[]{0, 0, 60, 60}, tracker.searchWindow(FULL_FRAME, 640, 480));
+        assertArrayEquals(new int[]{5, 5, 55, 55},
+                tracker.searchWindow(new int[]{5, 5, 100, 100}, 640, 480));
+        assertNull(tracker.searchWindow(new int[]{100, 100, 100, 100}, 640, 480));
+    }
+
+    @Test
+    public void testMissAndFrameSizeChangeForget() {
+        SymbolTracker tracker = new SymbolTracker();
+        tracker.update(Collections.singletonList(new int[]{300, 200, 40, 20}), 640, 480);
+        assertNull(tracker.searchWindow(FULL_FRAME, 1280, 720));
+        tracker.update(Collections.<int[]>emptyList(), 640, 480);
+        assertNull(tracker.searchWindow(FULL_FRAME, 640, 480));
+    }
+
+}
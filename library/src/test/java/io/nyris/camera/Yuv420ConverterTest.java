@@ -0,0 +1,157 @@
+package io.nyris.camera;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class Yuv420ConverterTest {
+
+    private static int[] convert(byte[] y, byte[] u, byte[] v, int width, int height,
+                                 int yRowStride, int uvRowStride, int uvPixelStride,
+                                 boolean halfSize) {
+        int[] output = new int[halfSize ? (width / 2) * (height / 2) : width * height];
+        Yuv420Converter.checkBuffers(y, u, v, output, width, height, yRowStride, uvRowStride,
+                uvPixelStride, halfSize);
+        Yuv420Converter.convert(y, u, v, output, width, height, yRowStride, uvRowStride,
+                uvPixelStride, halfSize);
+        return output;
+    }
+
+    private static int channel(int argb, int shift) {
+        return (argb >> shift) & 0xff;
+    }
+
+    private static void assertColor(int argb, int red, int green, int blue) {
+        assertThat(argb >>> 24, is(0xff));
+        assertTrue(Integer.toHexString(argb), Math.abs(channel(argb, 16) - red) <= 2);
+        assertTrue(Integer.toHexString(argb), Math.abs(channel(argb, 8) - green) <= 2);
+        assertTrue(Integer.toHexString(argb), Math.abs(channel(argb, 0) - blue) <= 2);
+    }
+
+    @Test
+    public void testReferenceColors() {
+        assertThat(Yuv420Converter.yuvToRgb(16, 128, 128), is(0xff000000));
+        assertColor(Yuv420Converter.yuvToRgb(235, 128, 128), 255, 255, 255);
+        // Video range red, green and blue
+        assertColor(Yuv420Converter.yuvToRgb(81, 90, 240), 255, 0, 0);
+        assertColor(Yuv420Converter.yuvToRgb(145, 54, 34), 0, 255, 0);
+        assertColor(Yuv420Converter.yuvToRgb(41, 240, 110), 0, 0, 255);
+    }
+
+    @Test
+    public void testMatchesFloatingPointBt601() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            int y = random.nextInt(256);
+            int u = random.nextInt(256);
+            int v = random.nextInt(256);
+            double luma = 1.164 * Math.max(0, y - 16);
+            int[] expected = {
+                    clamp(luma + 1.596 * (v - 128)),
+                    clamp(luma - 0.813 * (v - 128) - 0.391 * (u - 128)),
+                    clamp(luma + 2.018 * (u - 128))};
+            assertColor(Yuv420Converter.yuvToRgb(y, u, v), expected[0], expected[1], expected[2]);
+        }
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+
+    @Test
+    public void testStridedPlanesMatchPackedPlanes() {
+        int width = 5;
+        int height = 3;
+        Random random = new Random(3);
+        byte[] y = new byte[width * height];
+        byte[] u = new byte[3 * 2];
+        byte[] v = new byte[3 * 2];
+        random.nextBytes(y);
+        random.nextBytes(u);
+        random.nextBytes(v);
+        int[] packed = convert(y, u, v, width, height, width, 3, 1, false);
+
+        // Same frame with padded rows and semi-planar (pixel stride 2) chroma
+        int yRowStride = 8;
+        int uvRowStride = 7;
+        byte[] paddedY = new byte[(height - 1) * yRowStride + width];
+        byte[] paddedU = new byte[uvRowStride + 5];
+        byte[] paddedV = new byte[uvRowStride + 5];
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(y, row * width, paddedY, row * yRowStride, width);
+        }
+        for (int row = 0; row < 2; row++) {
+            for (int x = 0; x < 3; x++) {
+                paddedU[row * uvRowStride + 2 * x] = u[row * 3 + x];
+                paddedV[row * uvRowStride + 2 * x] = v[row * 3 + x];
+            }
+        }
+        int[] strided = convert(paddedY, paddedU, paddedV, width, height, yRowStride,
+                uvRowStride, 2, false);
+
+        assertArrayEquals(packed, strided);
+    }
+
+    @Test
+    public void testChromaIsSharedByEach2x2Block() {
+        byte[] y = new byte[4 * 2];
+        Arrays.fill(y, (byte) 128);
+        byte[] u = {(byte) 128, (byte) 240};
+        byte[] v = {(byte) 128, (byte) 128};
+        int[] output = convert(y, u, v, 4, 2, 4, 2, 1, false);
+
+        assertThat(output[0], is(output[1]));
+        assertThat(output[0], is(output[4]));
+        assertThat(output[2], is(output[7]));
+        // The right block is bluer
+        assertTrue(channel(output[2], 0) > channel(output[0], 0));
+    }
+
+    @Test
+    public void testHalfSize() {
+        int width = 4;
+        int height = 4;
+        byte[] y = new byte[width * height];
+        // Top left block averages to 100, the others stay at 16
+        Arrays.fill(y, (byte) 16);
+        y[0] = (byte) 40;
+        y[1] = (byte) 60;
+        y[4] = (byte) 140;
+        y[5] = (byte) 160;
+        byte[] u = new byte[4];
+        byte[] v = new byte[4];
+        Arrays.fill(u, (byte) 128);
+        Arrays.fill(v, (byte) 128);
+
+        int[] output = convert(y, u, v, width, height, width, 2, 1, true);
+
+        assertThat(output.length, is(4));
+        assertThat(output[0], is(Yuv420Converter.yuvToRgb(100, 128, 128)));
+        assertThat(output[1], is(0xff000000));
+        assertThat(output[3], is(0xff000000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckBuffers_planeTooSmall() {
+        Yuv420Converter.checkBuffers(new byte[15], new byte[4], new byte[4], new int[16], 4, 4, 4,
+                2, 1, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckBuffers_outputTooSmall() {
+        Yuv420Converter.checkBuffers(new byte[16], new byte[4], new byte[4], new int[3], 4, 4, 4,
+                2, 1, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckBuffers_rowStrideBelowWidth() {
+        Yuv420Converter.checkBuffers(new byte[16], new byte[4], new byte[4], new int[16], 4, 4, 3,
+                2, 1, false);
+    }
+}